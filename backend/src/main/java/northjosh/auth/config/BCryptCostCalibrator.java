@@ -0,0 +1,52 @@
+package northjosh.auth.config;
+
+import java.time.Duration;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+/**
+ * Finds the highest BCrypt cost whose hashing time on this machine stays within a target, as a
+ * recommendation for {@code auth.password.cost}; it never sets the cost itself.
+ */
+@Slf4j
+final class BCryptCostCalibrator {
+
+	private static final String SAMPLE = "calibration-sample-password";
+
+	private BCryptCostCalibrator() {}
+
+	static int calibrate(Duration target, int minCost, int maxCost) {
+		int chosen = minCost;
+
+		for (int cost = minCost; cost <= maxCost; cost++) {
+			Duration elapsed = measure(cost);
+			log.info("BCrypt cost {} takes {} ms", cost, elapsed.toMillis());
+
+			if (elapsed.compareTo(target) > 0) {
+				break;
+			}
+			chosen = cost;
+
+			// each step doubles the work, so stop once the next one would clearly overshoot
+			if (elapsed.multipliedBy(2).compareTo(target) > 0) {
+				break;
+			}
+		}
+
+		return chosen;
+	}
+
+	// best of two runs, so a GC pause or JIT warm-up does not skew the result
+	private static Duration measure(int cost) {
+		BCryptPasswordEncoder encoder = new BCryptPasswordEncoder(cost);
+		long best = Long.MAX_VALUE;
+
+		for (int i = 0; i < 2; i++) {
+			long start = System.nanoTime();
+			encoder.encode(SAMPLE);
+			best = Math.min(best, System.nanoTime() - start);
+		}
+
+		return Duration.ofNanos(best);
+	}
+}
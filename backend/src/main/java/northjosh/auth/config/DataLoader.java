@@ -17,6 +17,10 @@ public class DataLoader implements CommandLineRunner {
 
 	@Override
 	public void run(String... args) {
+		if (userRepo.findByEmail("test@example.com").isPresent()) {
+			return;
+		}
+
 		User user = new User();
 		user.setEmail("test@example.com");
 		user.setFirstName("Man");
@@ -6,6 +6,9 @@ import java.util.Map;
 import lombok.NonNull;
 import lombok.extern.slf4j.Slf4j;
 import northjosh.auth.dto.response.BaseError;
+import northjosh.auth.exceptions.ConnectionLimitException;
+import northjosh.auth.exceptions.InvalidCursorException;
+import northjosh.auth.exceptions.ServiceBusyException;
 import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
@@ -71,6 +74,53 @@ public class GlobalErrorHandler extends ResponseEntityExceptionHandler {
 		return handleExceptionInternal(ex, error, headers, status, request);
 	}
 
+	@ExceptionHandler(exception = ServiceBusyException.class)
+	public final ResponseEntity<Object> handleServiceBusyException(ServiceBusyException ex, WebRequest request) {
+
+		HttpHeaders headers = new HttpHeaders();
+		headers.set(HttpHeaders.RETRY_AFTER, "1");
+		HttpStatus status = HttpStatus.SERVICE_UNAVAILABLE;
+
+		BaseError error = BaseError.builder()
+				.errorCode(status.value())
+				.errorMessage(ex.getMessage())
+				.build();
+
+		// getSessionId() would create a session for every request shed under load
+		log.warn("[{}] HTTP ERROR: ServiceBusyException {}", request.getDescription(false), ex.getMessage());
+
+		return handleExceptionInternal(ex, error, headers, status, request);
+	}
+
+	@ExceptionHandler(exception = InvalidCursorException.class)
+	public final ResponseEntity<Object> handleInvalidCursorException(InvalidCursorException ex, WebRequest request) {
+
+		HttpHeaders headers = new HttpHeaders();
+		HttpStatus status = HttpStatus.BAD_REQUEST;
+
+		BaseError error = BaseError.builder()
+				.errorCode(status.value())
+				.errorMessage(ex.getMessage())
+				.build();
+
+		log.warn("[{}] HTTP ERROR: InvalidCursorException {}", request.getDescription(false), ex.getMessage());
+
+		return handleExceptionInternal(ex, error, headers, status, request);
+	}
+
+	/** No body: the client asked for text/event-stream, which a JSON error cannot be written as. */
+	@ExceptionHandler(exception = ConnectionLimitException.class)
+	public final ResponseEntity<Object> handleConnectionLimitException(
+			ConnectionLimitException ex, WebRequest request) {
+
+		// getSessionId() would create the very session a rejected client must not cost
+		log.warn("[{}] HTTP ERROR: ConnectionLimitException {}", request.getDescription(true), ex.getMessage());
+
+		return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+				.header(HttpHeaders.RETRY_AFTER, "5")
+				.build();
+	}
+
 	@ResponseStatus(HttpStatus.BAD_REQUEST)
 	@Override
 	public ResponseEntity<Object> handleMethodArgumentNotValid(
@@ -6,9 +6,8 @@
  */
 package northjosh.auth.config;
 
-import io.jsonwebtoken.Jwt;
 import java.util.Optional;
-import northjosh.auth.services.jwt.JwtService;
+import northjosh.auth.services.jwt.TokenClaims;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.domain.AuditorAware;
@@ -21,13 +20,13 @@ import org.springframework.security.core.context.SecurityContextHolder;
 public class JpaAuditingConfig {
 
 	@Bean
-	public AuditorAware<String> auditorProvider(JwtService jwtService) {
+	public AuditorAware<String> auditorProvider() {
 		return () -> {
 			Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
 			if (authentication != null && authentication.isAuthenticated()) {
 				String username = authentication.getName();
-				if (authentication.getPrincipal() instanceof Jwt jwt && jwt.getBody() != null) {
-					username = jwtService.getUsername(jwt.toString());
+				if (authentication.getPrincipal() instanceof TokenClaims claims) {
+					username = claims.getEmail();
 				}
 				return Optional.of(username);
 			} else {
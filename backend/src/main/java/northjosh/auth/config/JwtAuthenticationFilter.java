@@ -0,0 +1,84 @@
+package northjosh.auth.config;
+
+import io.jsonwebtoken.JwtException;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.List;
+import northjosh.auth.exceptions.WebAuthnException;
+import northjosh.auth.services.jwt.JwtService;
+import northjosh.auth.services.jwt.TokenClaims;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.web.AuthenticationEntryPoint;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+/**
+ * Verifies the bearer token once per request and stores its {@link TokenClaims} as the principal.
+ * Requests carrying a token that fails verification are answered here, before any controller or
+ * repository work happens.
+ *
+ * <p>Logout is left alone: it is authenticated by the refresh token in its body, and the access
+ * token sent along has usually expired by the time a user logs out.
+ */
+public class JwtAuthenticationFilter extends OncePerRequestFilter {
+
+	public static final String AUTHORITY_PREFIX = "TOKEN_";
+
+	public static final String BEARER_PREFIX = "Bearer ";
+
+	private static final String LOGOUT_PATH = "/auth/logout";
+
+	private final JwtService jwtService;
+	private final AuthenticationEntryPoint authEntryPoint;
+
+	public JwtAuthenticationFilter(JwtService jwtService, AuthenticationEntryPoint authEntryPoint) {
+		this.jwtService = jwtService;
+		this.authEntryPoint = authEntryPoint;
+	}
+
+	@Override
+	protected boolean shouldNotFilter(HttpServletRequest request) {
+		return LOGOUT_PATH.equals(
+				request.getRequestURI().substring(request.getContextPath().length()));
+	}
+
+	@Override
+	protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+			throws ServletException, IOException {
+
+		String header = request.getHeader(HttpHeaders.AUTHORIZATION);
+
+		if (header == null || !header.startsWith(BEARER_PREFIX)) {
+			chain.doFilter(request, response);
+			return;
+		}
+
+		TokenClaims claims;
+
+		try {
+			claims = jwtService.parse(header.substring(BEARER_PREFIX.length()));
+		} catch (JwtException | IllegalArgumentException e) {
+			SecurityContextHolder.clearContext();
+			authEntryPoint.commence(request, response, new WebAuthnException("Invalid Token"));
+			return;
+		}
+
+		UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(
+				claims,
+				null,
+				List.of(new SimpleGrantedAuthority(
+						AUTHORITY_PREFIX + claims.getType().name())));
+
+		SecurityContext context = SecurityContextHolder.createEmptyContext();
+		context.setAuthentication(authentication);
+		SecurityContextHolder.setContext(context);
+
+		chain.doFilter(request, response);
+	}
+}
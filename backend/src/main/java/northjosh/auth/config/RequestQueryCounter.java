@@ -0,0 +1,96 @@
+package northjosh.auth.config;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.util.Map;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+/**
+ * Counts the SQL statements each request issues and records them as {@code
+ * http.server.requests.queries}, tagged by route. A request going over {@code
+ * auth.queries.per-request-limit} is logged; with {@code auth.queries.strict} the statement that
+ * crosses the limit fails instead, so an N+1 regression fails any test that exercises the endpoint.
+ *
+ * <p>An async request (SSE) is counted up to the point it goes async: its container thread is
+ * returned to the pool then, without {@link #afterCompletion} running on it.
+ */
+@Slf4j
+@Component
+public class RequestQueryCounter implements StatementInspector, AsyncHandlerInterceptor, HibernatePropertiesCustomizer {
+
+	private static final ThreadLocal<int[]> COUNT = new ThreadLocal<>();
+
+	private final MeterRegistry meterRegistry;
+	private final int limit;
+	private final boolean strict;
+
+	public RequestQueryCounter(
+			MeterRegistry meterRegistry,
+			@Value("${auth.queries.per-request-limit:5}") int limit,
+			@Value("${auth.queries.strict:false}") boolean strict) {
+		this.meterRegistry = meterRegistry;
+		this.limit = limit;
+		this.strict = strict;
+	}
+
+	@Override
+	public void customize(Map<String, Object> hibernateProperties) {
+		hibernateProperties.put(AvailableSettings.STATEMENT_INSPECTOR, this);
+	}
+
+	@Override
+	public String inspect(String sql) {
+		int[] count = COUNT.get();
+
+		// statements outside a request (schedulers, startup) are not counted
+		if (count != null && ++count[0] > limit && strict) {
+			throw new IllegalStateException("Request exceeded its budget of " + limit + " queries: " + sql);
+		}
+
+		return sql;
+	}
+
+	@Override
+	public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+		COUNT.set(new int[1]);
+		return true;
+	}
+
+	@Override
+	public void afterConcurrentHandlingStarted(
+			HttpServletRequest request, HttpServletResponse response, Object handler) {
+		afterCompletion(request, response, handler, null);
+	}
+
+	@Override
+	public void afterCompletion(
+			HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+		int[] count = COUNT.get();
+		COUNT.remove();
+
+		if (count == null) {
+			return;
+		}
+
+		Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+		String uri = pattern == null ? "UNKNOWN" : pattern.toString();
+
+		DistributionSummary.builder("http.server.requests.queries")
+				.tag("uri", uri)
+				.register(meterRegistry)
+				.record(count[0]);
+
+		if (count[0] > limit) {
+			log.warn("{} {} issued {} queries, over the limit of {}", request.getMethod(), uri, count[0], limit);
+		}
+	}
+}
@@ -3,6 +3,7 @@ package northjosh.auth.config;
 import jakarta.servlet.http.HttpServletResponse;
 import northjosh.auth.dto.response.ApiResponse;
 import northjosh.auth.dto.response.BaseError;
+import northjosh.auth.dto.response.JsonWebKeySet;
 import org.springframework.core.MethodParameter;
 import org.springframework.http.MediaType;
 import org.springframework.http.server.ServerHttpRequest;
@@ -26,7 +27,7 @@ public class ResponseHandler implements ResponseBodyAdvice {
 			ServerHttpRequest request,
 			ServerHttpResponse response) {
 
-		if (body instanceof ApiResponse) {
+		if (body instanceof ApiResponse || body instanceof JsonWebKeySet) {
 			return body;
 		}
 
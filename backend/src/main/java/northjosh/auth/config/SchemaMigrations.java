@@ -0,0 +1,62 @@
+package northjosh.auth.config;
+
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Changes {@code ddl-auto=update} cannot make on its own, since it only ever adds to a schema. Each
+ * statement is idempotent and runs on every startup; only PostgreSQL schemas predate them.
+ */
+@Component
+public class SchemaMigrations implements CommandLineRunner {
+
+	/**
+	 * {@code push_auth.user_id} was unique while a user could have one pending push login. Drops that
+	 * constraint under whatever name Hibernate gave it, leaving constraints over several columns alone.
+	 */
+	static final String DROP_PUSH_AUTH_USER_UNIQUE =
+			"""
+			do $$
+			declare
+				uk text;
+			begin
+				for uk in
+					select con.conname
+					from pg_constraint con
+					join pg_class rel on rel.oid = con.conrelid
+					join pg_attribute att on att.attrelid = con.conrelid and att.attnum = con.conkey[1]
+					where rel.relname = 'push_auth'
+						and pg_table_is_visible(rel.oid)
+						and con.contype = 'u'
+						and cardinality(con.conkey) = 1
+						and att.attname = 'user_id'
+				loop
+					execute format('alter table push_auth drop constraint %I', uk);
+				end loop;
+			end $$
+			""";
+
+	/** Pending push logins kept their raw exchange key here before only its hash was stored. */
+	static final String DROP_PUSH_AUTH_EXCHANGE_KEY = "alter table push_auth drop column if exists exchange_key";
+
+	private final JdbcTemplate jdbcTemplate;
+
+	public SchemaMigrations(JdbcTemplate jdbcTemplate) {
+		this.jdbcTemplate = jdbcTemplate;
+	}
+
+	@Override
+	public void run(String... args) {
+		String database = jdbcTemplate.execute((ConnectionCallback<String>)
+				connection -> connection.getMetaData().getDatabaseProductName());
+
+		if (!"PostgreSQL".equals(database)) {
+			return;
+		}
+
+		jdbcTemplate.execute(DROP_PUSH_AUTH_USER_UNIQUE);
+		jdbcTemplate.execute(DROP_PUSH_AUTH_EXCHANGE_KEY);
+	}
+}
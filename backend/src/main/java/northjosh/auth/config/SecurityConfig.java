@@ -1,9 +1,16 @@
 package northjosh.auth.config;
 
+import jakarta.servlet.DispatcherType;
+import java.time.Duration;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import lombok.extern.slf4j.Slf4j;
+import northjosh.auth.services.jwt.JwtService;
+import northjosh.auth.services.jwt.TokenType;
 import northjosh.auth.services.user.UserService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationProvider;
@@ -13,37 +20,99 @@ import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
 import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
 
+@Slf4j
 @Configuration
 public class SecurityConfig {
 
 	@Autowired
 	private UserService userService;
 
+	/**
+	 * Hashes are stored with an algorithm prefix such as {@code {bcrypt}}, so the algorithm or its
+	 * cost can change without invalidating existing passwords; {@code AuthService} rehashes outdated
+	 * ones after a successful login. Unprefixed hashes from before the prefix was introduced are
+	 * still verified as BCrypt.
+	 *
+	 * <p>The cost is {@code auth.password.cost} on every node: a hash below it is rehashed, so a
+	 * per-node value would have nodes rehashing each other's passwords back and forth. Calibration
+	 * only reports what this machine could afford.
+	 */
 	@Bean
-	public PasswordEncoder passwordEncoder() {
-		return new BCryptPasswordEncoder();
+	public PasswordEncoder passwordEncoder(
+			@Value("${auth.password.cost:12}") int cost,
+			@Value("${auth.password.calibrate:false}") boolean calibrate,
+			@Value("${auth.password.target-latency:250ms}") Duration targetLatency,
+			@Value("${auth.password.min-cost:10}") int minCost,
+			@Value("${auth.password.max-cost:14}") int maxCost) {
+
+		if (calibrate) {
+			int recommended = BCryptCostCalibrator.calibrate(targetLatency, minCost, maxCost);
+			log.info(
+					"BCrypt cost {} fits a target of {} ms on this node; auth.password.cost is {}",
+					recommended,
+					targetLatency.toMillis(),
+					cost);
+		}
+
+		DelegatingPasswordEncoder encoder =
+				new DelegatingPasswordEncoder("bcrypt", Map.of("bcrypt", new BCryptPasswordEncoder(cost)));
+		encoder.setDefaultPasswordEncoderForMatches(new BCryptPasswordEncoder());
+		return encoder;
 	}
 
 	@Bean
 	public SecurityFilterChain filterChain(
-			HttpSecurity http, AuthEntryPoint authEntryPoint, CustomAccessDeniedHandler customAccessDeniedHandler)
+			HttpSecurity http,
+			AuthEntryPoint authEntryPoint,
+			CustomAccessDeniedHandler customAccessDeniedHandler,
+			JwtService jwtService)
 			throws Exception {
 
+		String accessAuthority = JwtAuthenticationFilter.AUTHORITY_PREFIX + TokenType.ACCESS.name();
+
 		http.csrf(AbstractHttpConfigurer::disable)
 				.sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
-				.authorizeHttpRequests(auth -> auth.requestMatchers(
-								"/auth/signup", "/auth/login", "/auth/verify-totp", "/auth/verify-email")
+				.authorizeHttpRequests(auth -> auth
+						// the request that opened a stream was authorised; its async dispatches carry no token
+						.dispatcherTypeMatchers(DispatcherType.ASYNC)
 						.permitAll()
 						.requestMatchers(
-								"/auth/me", "/push/**", "/auth/enable-totp", "/auth/disable-totp", "/webauthn/**")
+								"/auth/signup",
+								"/auth/login",
+								"/auth/verify-totp",
+								"/auth/verify-email",
+								"/auth/refresh",
+								"/auth/logout",
+								"/auth/magic/**")
 						.permitAll()
+						.requestMatchers(
+								"/push/listen",
+								"/push/sse",
+								"/push/generate",
+								"/push/exchange",
+								"/webauthn/auth/**",
+								"/.well-known/**")
+						.permitAll()
+						.requestMatchers(
+								"/auth/me",
+								"/auth/sessions",
+								"/push/**",
+								"/auth/enable-totp",
+								"/auth/disable-totp",
+								"/webauthn/**")
+						.hasAuthority(accessAuthority)
 						.anyRequest()
 						.authenticated())
+				.addFilterBefore(
+						new JwtAuthenticationFilter(jwtService, authEntryPoint),
+						UsernamePasswordAuthenticationFilter.class)
 				.formLogin(AbstractHttpConfigurer::disable)
 				.httpBasic(Customizer.withDefaults());
 		http.exceptionHandling(
@@ -57,7 +126,7 @@ public class SecurityConfig {
 		CorsConfiguration configuration = new CorsConfiguration();
 		configuration.setAllowedOriginPatterns(List.of("*"));
 		configuration.setAllowedMethods(Arrays.asList("GET", "POST", "PUT", "DELETE", "OPTIONS"));
-		configuration.setAllowedHeaders(Arrays.asList("Authorization", "Content-Type"));
+		configuration.setAllowedHeaders(Arrays.asList("Authorization", "Content-Type", "Last-Event-ID"));
 		configuration.setAllowCredentials(true);
 		UrlBasedCorsConfigurationSource source = new UrlBasedCorsConfigurationSource();
 		source.registerCorsConfiguration("/**", configuration);
@@ -65,9 +134,9 @@ public class SecurityConfig {
 	}
 
 	@Bean
-	public AuthenticationProvider authenticationProvider() {
+	public AuthenticationProvider authenticationProvider(PasswordEncoder passwordEncoder) {
 		DaoAuthenticationProvider provider = new DaoAuthenticationProvider(userService);
-		provider.setPasswordEncoder(passwordEncoder());
+		provider.setPasswordEncoder(passwordEncoder);
 		return provider;
 	}
 }
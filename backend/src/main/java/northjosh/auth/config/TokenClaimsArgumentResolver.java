@@ -0,0 +1,39 @@
+package northjosh.auth.config;
+
+import northjosh.auth.exceptions.WebAuthnException;
+import northjosh.auth.services.jwt.TokenClaims;
+import org.springframework.core.MethodParameter;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.bind.support.WebDataBinderFactory;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
+import org.springframework.web.method.support.ModelAndViewContainer;
+
+/**
+ * Lets controller methods declare a {@link TokenClaims} parameter and receive the claims that
+ * {@link JwtAuthenticationFilter} already verified for the current request.
+ */
+public class TokenClaimsArgumentResolver implements HandlerMethodArgumentResolver {
+
+	@Override
+	public boolean supportsParameter(MethodParameter parameter) {
+		return TokenClaims.class.isAssignableFrom(parameter.getParameterType());
+	}
+
+	@Override
+	public Object resolveArgument(
+			MethodParameter parameter,
+			ModelAndViewContainer mavContainer,
+			NativeWebRequest webRequest,
+			WebDataBinderFactory binderFactory) {
+
+		Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+
+		if (authentication != null && authentication.getPrincipal() instanceof TokenClaims claims) {
+			return claims;
+		}
+
+		throw new WebAuthnException("Invalid Token");
+	}
+}
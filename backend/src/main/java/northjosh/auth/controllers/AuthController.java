@@ -1,21 +1,31 @@
 package northjosh.auth.controllers;
 
+import io.jsonwebtoken.JwtException;
 import jakarta.validation.Valid;
 import java.util.Map;
+import northjosh.auth.config.JwtAuthenticationFilter;
 import northjosh.auth.dto.*;
+import northjosh.auth.dto.mapper.LoginSessionMapper;
+import northjosh.auth.dto.mapper.UserMapper;
+import northjosh.auth.dto.response.LoginSessionDto;
+import northjosh.auth.dto.response.PagedContent;
 import northjosh.auth.exceptions.WebAuthnException;
 import northjosh.auth.repo.user.User;
-import northjosh.auth.repo.user.UserRepo;
 import northjosh.auth.services.auth.AuthService;
+import northjosh.auth.services.auth.RefreshTokenService;
 import northjosh.auth.services.email.EmailService;
 import northjosh.auth.services.jwt.JwtService;
+import northjosh.auth.services.jwt.TokenClaims;
+import northjosh.auth.services.jwt.TokenType;
 import northjosh.auth.services.totp.TotpService;
 import northjosh.auth.services.user.UserService;
-import org.modelmapper.ModelMapper;
+import northjosh.auth.services.user.UserSnapshot;
+import northjosh.auth.services.user.UserUpdate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.web.bind.annotation.*;
 
 @RestController
@@ -29,28 +39,30 @@ public class AuthController {
 
 	private final TotpService totpService;
 
-	private final UserRepo userRepo;
-
-	private final ModelMapper modelMapper;
+	private final UserMapper userMapper;
 	private final UserService userService;
 	private final EmailService emailService;
+	private final RefreshTokenService refreshTokenService;
+	private final LoginSessionMapper loginSessionMapper;
 
 	@Autowired
 	public AuthController(
 			AuthService authService,
 			JwtService jwtService,
 			TotpService totpService,
-			UserRepo userRepo,
-			ModelMapper modelMapper,
+			UserMapper userMapper,
 			UserService userService,
-			EmailService emailService) {
+			EmailService emailService,
+			RefreshTokenService refreshTokenService,
+			LoginSessionMapper loginSessionMapper) {
 		this.authService = authService;
 		this.jwtService = jwtService;
 		this.totpService = totpService;
-		this.userRepo = userRepo;
-		this.modelMapper = modelMapper;
+		this.userMapper = userMapper;
 		this.userService = userService;
 		this.emailService = emailService;
+		this.refreshTokenService = refreshTokenService;
+		this.loginSessionMapper = loginSessionMapper;
 	}
 
 	@PostMapping("/login")
@@ -59,31 +71,56 @@ public class AuthController {
 	}
 
 	@GetMapping("/me")
-	public UserDto getCurrentUser(@RequestHeader("Authorization") String authHeader) {
-		if (authHeader == null || !authHeader.startsWith("Bearer ")) {
-			throw new RuntimeException("Unauthorized");
-		}
-
-		String token = authHeader.substring(7);
+	public UserDto getCurrentUser(TokenClaims claims) {
+		UserSnapshot user = userService.snapshot(claims.getEmail());
 
-		if (jwtService.isPendingToken(token)) {
-			throw new IllegalStateException("Unauthorized");
-		}
+		return userMapper.toDto(user);
+	}
 
-		String email = jwtService.getUsername(token);
-		User user = userService.get(email);
+	/** The caller's logins, newest first, one page at a time. */
+	@GetMapping("/sessions")
+	public PagedContent<LoginSessionDto> sessions(
+			TokenClaims claims,
+			@RequestParam(required = false) String cursor,
+			@RequestParam(defaultValue = "" + PageCursor.DEFAULT_SIZE) int size) {
+		PageCursor before = PageCursor.decode(cursor);
+		int limit = PageCursor.clamp(size);
+
+		return PagedContent.keyset(
+				refreshTokenService.history(claims.getEmail(), before, limit),
+				limit,
+				before,
+				family -> new PageCursor(family.getCreatedAt(), family.getId()),
+				loginSessionMapper::toDto);
+	}
 
-		UserDto userDto = modelMapper.map(user, UserDto.class);
-		userDto.setWebAuthnEnabled(!user.getCredentials().isEmpty());
+	/**
+	 * Ends the login the refresh token belongs to. The access token, if one is sent and still valid,
+	 * is revoked too; an expired one needs nothing, so it does not stop the logout.
+	 */
+	@PostMapping("/logout")
+	public Map<String, String> logout(
+			@RequestBody @Valid RefreshRequest request,
+			@RequestHeader(value = HttpHeaders.AUTHORIZATION, required = false) String authorization) {
+		refreshTokenService.revokeFamily(request.getRefreshToken());
+
+		if (authorization != null && authorization.startsWith(JwtAuthenticationFilter.BEARER_PREFIX)) {
+			try {
+				jwtService.revoke(
+						jwtService.parse(authorization.substring(JwtAuthenticationFilter.BEARER_PREFIX.length())));
+			} catch (JwtException | IllegalArgumentException e) {
+				log.debug("Logout without a live access token: {}", e.getMessage());
+			}
+		}
 
-		return userDto;
+		return Map.of("message", "Logged out");
 	}
 
 	@PostMapping("/verify-totp")
 	public Map<String, Object> verifyTotp(@RequestBody @Valid TotpRequest request) {
 		String email = jwtService.getUsername(request.getPendingToken());
 
-		User user = userService.get(email);
+		UserSnapshot user = userService.snapshot(email);
 
 		boolean isTotpValid;
 
@@ -97,21 +134,21 @@ public class AuthController {
 			throw new WebAuthnException("Invalid TOTP or backup code");
 		}
 		String jwt = jwtService.generateAccessToken(user.getEmail());
-		return Map.of("token", jwt);
+		return Map.of("token", jwt, "refreshToken", refreshTokenService.issue(user.getEmail()));
 	}
 
 	@PostMapping("/verify-email")
 	public Map<String, Object> verifyEmail(@RequestBody Map<String, String> request) {
 
-		String token = request.get("pendingToken");
+		TokenClaims claims = jwtService.parse(request.get("pendingToken"));
 
-		if (!jwtService.isVerificationToken(token)) {
+		if (!claims.is(TokenType.VERIFICATION)) {
 			throw new WebAuthnException("Invalid Token");
 		}
 
-		String email = jwtService.getUsername(token);
+		String email = claims.getEmail();
 
-		userService.updateUser(Map.of("email", email, "emailVerified", true));
+		userService.updateUser(email, UserUpdate.builder().emailVerified(true).build());
 		emailService.sendWelcomeEmail(email);
 		return Map.of("message", "Email Verified");
 	}
@@ -120,7 +157,7 @@ public class AuthController {
 	public UserDto signup(@RequestBody @Valid SignUpDto dto) {
 
 		User newUser = authService.signup(dto);
-		UserDto user = modelMapper.map(newUser, UserDto.class);
+		UserDto user = userMapper.toDto(newUser);
 		String token = jwtService.generateVerificationToken(user.getEmail());
 		log.info(token);
 		emailService.sendVerifyEmail(user.getEmail(), token);
@@ -131,10 +168,10 @@ public class AuthController {
 	@PostMapping("/magic/request")
 	public Map<String, String> request(@RequestBody LoginDto login) {
 
-		User user;
+		UserSnapshot user;
 
 		try {
-			user = userService.get(login.getEmail());
+			user = userService.snapshot(login.getEmail());
 		} catch (EmptyResultDataAccessException e) {
 			return Map.of("message", "Check your email for link");
 		}
@@ -150,32 +187,32 @@ public class AuthController {
 	@PostMapping("/magic/verify")
 	public Map<String, String> verify(@RequestBody Map<String, String> request) {
 
-		if (!jwtService.isVerificationToken(request.get("pendingToken"))) {
+		TokenClaims claims = jwtService.parse(request.get("pendingToken"));
+
+		if (!claims.is(TokenType.VERIFICATION)) {
 			throw new WebAuthnException("Invalid Token");
 		}
 
-		String email = jwtService.getUsername(request.get("pendingToken"));
+		String email = claims.getEmail();
 
 		String token = jwtService.generateAccessToken(email);
 
-		return Map.of("token", token);
+		return Map.of("token", token, "refreshToken", refreshTokenService.issue(email));
 	}
 
-	@PostMapping("/enable-totp")
-	public TotpResponse enableTOTP(@RequestHeader("Authorization") String authHeader) {
-		if (authHeader == null || !authHeader.startsWith("Bearer ")) {
-			throw new RuntimeException("Unauthorized");
-		}
-
-		String token = authHeader.substring(7);
+	@PostMapping("/refresh")
+	public AuthResponse refresh(@RequestBody @Valid RefreshRequest request) {
+		return refreshTokenService.refresh(request.getRefreshToken());
+	}
 
-		String email = jwtService.getUsername(token);
-		User user = userService.get(email);
+	@PostMapping("/enable-totp")
+	public TotpResponse enableTOTP(TokenClaims claims) {
+		User user = userService.get(claims.getEmail());
 
 		String secret = totpService.generateSecret();
 		user.setTotpSecret(secret);
 		user.setTotpEnabled(true);
-		userRepo.save(user);
+		userService.save(user);
 
 		String qrUrl = totpService.getQRCodeUrl(user.getEmail(), secret);
 
@@ -183,22 +220,11 @@ public class AuthController {
 	}
 
 	@PostMapping("/disable-totp")
-	public Map<String, String> disableTOTP(@RequestHeader("Authorization") String authHeader) {
-		if (authHeader == null || !authHeader.startsWith("Bearer ")) {
-			throw new WebAuthnException("Invalid Token");
-		}
-
-		String token = authHeader.substring(7);
-
-		if (jwtService.isPendingToken(token)) {
-			throw new WebAuthnException("Invalid Token");
-		}
-
-		String email = jwtService.getUsername(token);
-		User user = userService.get(email);
+	public Map<String, String> disableTOTP(TokenClaims claims) {
+		User user = userService.get(claims.getEmail());
 		user.setTotpSecret(null);
 		user.setTotpEnabled(false);
-		userRepo.save(user);
+		userService.save(user);
 
 		return Map.of("message", "TOTP disabled successfully");
 	}
@@ -0,0 +1,29 @@
+package northjosh.auth.controllers;
+
+import java.time.Duration;
+import northjosh.auth.dto.response.JsonWebKeySet;
+import northjosh.auth.services.jwt.JwtService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+public class JwksController {
+
+	private final JwtService jwtService;
+	private final Duration maxAge;
+
+	public JwksController(JwtService jwtService, @Value("${jwt.jwks.max-age:5m}") Duration maxAge) {
+		this.jwtService = jwtService;
+		this.maxAge = maxAge;
+	}
+
+	@GetMapping("/.well-known/jwks.json")
+	public ResponseEntity<JsonWebKeySet> jwks() {
+		return ResponseEntity.ok()
+				.cacheControl(CacheControl.maxAge(maxAge).cachePublic())
+				.body(jwtService.getJsonWebKeySet());
+	}
+}
@@ -1,25 +1,29 @@
 package northjosh.auth.controllers;
 
 import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.time.LocalTime;
 import java.util.Base64;
-import java.util.List;
 import java.util.Map;
-import java.util.concurrent.Executor;
-import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import northjosh.auth.dto.AuthResponse;
+import northjosh.auth.dto.PageCursor;
 import northjosh.auth.dto.PushAuthResponse;
+import northjosh.auth.dto.mapper.PushAuthMapper;
+import northjosh.auth.dto.response.PagedContent;
 import northjosh.auth.dto.response.PushAuthDto;
-import northjosh.auth.exceptions.WebAuthnException;
 import northjosh.auth.repo.pushauth.ClientInfo;
-import northjosh.auth.repo.pushauth.PushAuth;
-import northjosh.auth.repo.user.User;
-import northjosh.auth.services.jwt.JwtService;
+import northjosh.auth.services.jwt.TokenClaims;
 import northjosh.auth.services.otp.PushAuthService;
+import northjosh.auth.services.otp.UserAgentParser;
 import northjosh.auth.services.user.UserService;
-import org.modelmapper.ModelMapper;
+import northjosh.auth.services.user.UserSnapshot;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
@@ -27,8 +31,6 @@ import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 @RequestMapping("/push")
 public class PushAuthController {
 
-	Executor sseExecutor = Executors.newCachedThreadPool();
-
 	@Autowired
 	private SseEmitters emitters;
 
@@ -39,49 +41,66 @@ public class PushAuthController {
 	private PushAuthService pushAuthService;
 
 	@Autowired
-	private ModelMapper modelMapper;
+	private PushAuthMapper pushAuthMapper;
 
 	@Autowired
-	private JwtService jwtService;
+	private UserAgentParser userAgentParser;
+
+	@Value("${push.sse.listen-timeout:10m}")
+	private Duration listenTimeout;
 
 	@GetMapping("/listen")
-	public SseEmitter listen(@RequestParam String clientId, HttpServletRequest req) {
-
-		ClientInfo clientInfo = new ClientInfo(req);
-
-		SseEmitter emitter = new SseEmitter();
-		sseExecutor.execute(() -> {
-			try {
-				for (int i = 0; true; i++) {
-					SseEmitter.SseEventBuilder event = SseEmitter.event()
-							.data("SSE MVC - %s ".formatted(clientInfo.getUserAgentFamily()) + LocalTime.now())
-							.id(String.valueOf(i))
-							.name("sse event - %s from".formatted(clientId));
-					emitter.send(event);
-					Thread.sleep(1000);
-				}
-			} catch (Exception ex) {
-				emitter.completeWithError(ex);
-			}
-		});
+	public SseEmitter listen(@RequestParam String clientId, HttpServletRequest req, HttpServletResponse res) {
+
+		ClientInfo clientInfo = userAgentParser.clientInfo(req);
+
+		SseEmitter emitter = emitters.open("listen", listenTimeout.toMillis(), req, res);
+		AtomicLong sequence = new AtomicLong();
+
+		emitters.subscribe(emitter, () -> SseEmitter.event()
+				.data("SSE MVC - %s ".formatted(clientInfo.getUserAgentFamily()) + LocalTime.now())
+				.id(String.valueOf(sequence.getAndIncrement()))
+				.name("sse event - %s from".formatted(clientId)));
 
 		return emitter;
 	}
 
 	@GetMapping("/sse")
-	public SseEmitter verify(@RequestParam String clientId) throws IOException {
-		SseEmitter emitter = new SseEmitter(60L * 2000);
-
+	public SseEmitter verify(
+			@RequestParam String clientId,
+			@RequestHeader(value = "Last-Event-ID", required = false) String lastEventId,
+			HttpServletRequest req,
+			HttpServletResponse res)
+			throws IOException {
 		String[] decoded = decode(clientId);
 
 		String requestId = decoded[2];
+		if (!PushAuthService.isRequestId(requestId)) {
+			throw new IllegalArgumentException("Invalid token format");
+		}
+
+		SseEmitter emitter = emitters.open("sse", 60L * 2000, req, res);
+
+		emitter.send(SseEmitter.event().reconnectTime(1000).data("Connection established"));
 
-		emitters.add(requestId, emitter);
+		emitters.add(PushAuthService.loginChannel(requestId), emitter, lastEventId);
+
+		return emitter;
+	}
 
-		emitter.send(SseEmitter.event().data("Connection established"));
+	/**
+	 * The caller's pending attempts: an {@code attempts} snapshot of the first page on connect, then
+	 * {@code attempt-created} and {@code attempt-removed} as they happen.
+	 */
+	@GetMapping("/attempts/stream")
+	public SseEmitter attempts(TokenClaims claims, HttpServletRequest req, HttpServletResponse res) {
+		String email = claims.getEmail();
+		// quiet for minutes while nobody logs in, so bounded by listenTimeout rather than reaped as idle
+		SseEmitter emitter = emitters.open("attempts", listenTimeout.toMillis(), 0, req, res);
 
-		emitter.onCompletion(() -> emitters.remove(requestId));
-		emitter.onTimeout(() -> emitters.remove(requestId));
+		emitters.attach(PushAuthService.attemptsChannel(email), emitter, () -> SseEmitter.event()
+				.name("attempts")
+				.data(get(claims, null, PageCursor.MAX_SIZE).getData(), MediaType.APPLICATION_JSON));
 
 		return emitter;
 	}
@@ -91,50 +110,41 @@ public class PushAuthController {
 
 		String email = dto.get("email");
 
-		User user = userService.get(email);
+		UserSnapshot user = userService.snapshot(email);
 
-		PushAuth attempt = pushAuthService.createSession(user, request);
-
-		return modelMapper.map(attempt, PushAuthResponse.class);
+		return pushAuthService.createSession(user, request);
 	}
 
 	@PostMapping("/verify")
-	public Map<String, String> verify(
-			@RequestHeader("Authorization") String authHeader, @RequestBody Map<String, String> dto) {
-		if (authHeader == null || !authHeader.startsWith("Bearer ")) {
-			throw new WebAuthnException("Invalid Token");
-		}
-		String token = authHeader.substring(7);
-
-		if (jwtService.isPendingToken(token)) {
-			throw new WebAuthnException("Invalid Token");
-		}
-
+	public Map<String, String> verify(@RequestBody Map<String, String> dto) {
 		pushAuthService.verify(dto);
 		return Map.of("message", "Login Successful");
 	}
 
-	@GetMapping("/get")
-	public List<PushAuthDto> get(@RequestHeader("Authorization") String authHeader) {
-		if (authHeader == null || !authHeader.startsWith("Bearer ")) {
-			throw new WebAuthnException("Invalid Token");
-		}
-		String token = authHeader.substring(7);
-
-		if (jwtService.isPendingToken(token)) {
-			throw new WebAuthnException("Invalid Token");
-		}
-
-		String email = jwtService.getUsername(token);
+	@PostMapping("/exchange")
+	public AuthResponse exchange(@RequestBody Map<String, String> dto) {
+		return pushAuthService.exchange(dto.get("grant"), dto.get("exchangeKey"));
+	}
 
-		return pushAuthService.getAll(email).stream()
-				.map(cred -> modelMapper.map(cred, PushAuthDto.class))
-				.toList();
+	@GetMapping("/get")
+	public PagedContent<PushAuthDto> get(
+			TokenClaims claims,
+			@RequestParam(required = false) String cursor,
+			@RequestParam(defaultValue = "" + PageCursor.DEFAULT_SIZE) int size) {
+		PageCursor after = PageCursor.decode(cursor);
+		int limit = PageCursor.clamp(size);
+
+		return PagedContent.keyset(
+				pushAuthService.page(claims.getEmail(), after, limit),
+				limit,
+				after,
+				attempt -> new PageCursor(attempt.getCreatedAt(), attempt.getRequestId()),
+				pushAuthMapper::toDto);
 	}
 
 	public static String[] decode(String base64Token) {
 		String decoded = new String(Base64.getDecoder().decode(base64Token), StandardCharsets.UTF_8);
-		// Expected format: auth_login_<sessionID>_<email>
+		// Expected format: auth_login_<requestId>_<email>
 		String[] parts = decoded.split("_", 4);
 
 		if (parts.length != 4 || !parts[0].equals("auth") || !parts[1].equals("login")) {
@@ -1,24 +1,564 @@
 package northjosh.auth.controllers;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PreDestroy;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
 import java.util.Map;
-import java.util.Optional;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import northjosh.auth.exceptions.ConnectionLimitException;
+import northjosh.auth.services.events.PushEvent;
+import northjosh.auth.services.events.PushEventBus;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter.SseEventBuilder;
 
+/**
+ * Every open SSE connection, and the threads that keep them alive. Push-login channels ({@code
+ * /push/sse}) are keyed by request id, may have several connections each, and get a comment line on
+ * each heartbeat; {@code /push/listen} subscribers get their own event instead. A connection whose
+ * send fails is dropped, so the number of open connections never affects the number of threads.
+ *
+ * <p>Nothing writes to a socket where it could hold anyone else up. Events and heartbeats go into
+ * each connection's own queue and are written by {@code push.sse.senders} threads, draining at most
+ * one connection each, so a client that has stopped reading holds up one sender rather than the
+ * publishing request, the event bus, the heartbeat or the idle reaper. A connection with more than
+ * {@code push.sse.max-queued-events} waiting is dropped; heartbeats are only queued behind nothing.
+ *
+ * <p>Events go out through the {@link PushEventBus}, so they reach the channel on whichever node
+ * holds its connection. Each channel keeps its most recent events, numbered in the order the bus
+ * delivered them, and a reconnect presenting {@code Last-Event-ID} is sent whatever it missed. Ids
+ * are {@code epoch:seq}, the epoch being random per buffer, so an id from another node or from a
+ * buffer since evicted is recognised as such and answered with everything buffered instead.
+ * Retention is bounded per channel by {@code push.sse.replay.events} and {@code
+ * push.sse.replay.bytes}, and overall by {@code push.sse.replay.channels} and {@code
+ * push.sse.replay.ttl}.
+ *
+ * <p>Connections are admitted through {@link #open}, which turns clients away once {@code
+ * push.sse.max-connections} are open in total or {@code push.sse.max-connections-per-address} from
+ * one address. A connection that has carried no event for {@code push.sse.idle-timeout} is closed,
+ * heartbeats not counting, unless it was opened with an idle timeout of its own. Each connection's
+ * servlet response buffer is {@code push.sse.send-buffer} bytes.
+ */
+@Slf4j
 @Component
 public class SseEmitters {
-	private final Map<String, org.springframework.web.servlet.mvc.method.annotation.SseEmitter> emitters =
-			new ConcurrentHashMap<>();
 
-	public void add(String sessionId, org.springframework.web.servlet.mvc.method.annotation.SseEmitter emitter) {
-		emitters.put(sessionId, emitter);
+	private final Map<String, Set<SseEmitter>> channels = new ConcurrentHashMap<>();
+	private final Map<SseEmitter, Supplier<SseEventBuilder>> listeners = new ConcurrentHashMap<>();
+	private final Cache<String, ReplayBuffer> replay;
+
+	private final Map<SseEmitter, Connection> connections = new ConcurrentHashMap<>();
+	private final Map<String, Integer> perAddress = new ConcurrentHashMap<>();
+	private final AtomicInteger open = new AtomicInteger();
+
+	private final ScheduledExecutorService heartbeat =
+			Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("sse-heartbeat-"));
+	private final ThreadPoolExecutor senders;
+
+	private final PushEventBus eventBus;
+	private final ObjectMapper objectMapper;
+	private final int replayEvents;
+	private final int replayBytes;
+	private final int maxConnections;
+	private final int maxPerAddress;
+	private final int sendBuffer;
+	private final int maxQueuedEvents;
+	private final long idleTimeout;
+
+	private final Timer sendTimer;
+	private final Counter dropped;
+	private final Counter replayed;
+	private final Counter resynced;
+	private final Counter reaped;
+	private final MeterRegistry meterRegistry;
+
+	public SseEmitters(
+			PushEventBus eventBus,
+			ObjectMapper objectMapper,
+			MeterRegistry meterRegistry,
+			@Value("${push.sse.heartbeat-interval:5000}") long heartbeatInterval,
+			@Value("${push.sse.senders:4}") int senderThreads,
+			@Value("${push.sse.replay.events:32}") int replayEvents,
+			@Value("${push.sse.replay.bytes:16384}") int replayBytes,
+			@Value("${push.sse.replay.channels:10000}") long replayChannels,
+			@Value("${push.sse.replay.ttl:2m}") Duration replayTtl,
+			@Value("${push.sse.max-connections:10000}") int maxConnections,
+			@Value("${push.sse.max-connections-per-address:20}") int maxPerAddress,
+			@Value("${push.sse.send-buffer:2048}") int sendBuffer,
+			@Value("${push.sse.max-queued-events:64}") int maxQueuedEvents,
+			@Value("${push.sse.idle-timeout:2m}") Duration idleTimeout) {
+		this.eventBus = eventBus;
+		this.objectMapper = objectMapper;
+		this.replayEvents = replayEvents;
+		this.replayBytes = replayBytes;
+		this.maxConnections = maxConnections;
+		this.maxPerAddress = maxPerAddress;
+		this.sendBuffer = sendBuffer;
+		this.maxQueuedEvents = maxQueuedEvents;
+		this.idleTimeout = idleTimeout.toMillis();
+		this.meterRegistry = meterRegistry;
+
+		this.replay = Caffeine.newBuilder()
+				.maximumSize(replayChannels)
+				.expireAfterAccess(replayTtl)
+				.recordStats()
+				.build();
+		CaffeineCacheMetrics.monitor(meterRegistry, replay, "push.sse.replay");
+
+		this.sendTimer = Timer.builder("push.sse.send")
+				.publishPercentiles(0.5, 0.95, 0.99)
+				.register(meterRegistry);
+		this.dropped = meterRegistry.counter("push.sse.dropped");
+		this.replayed = meterRegistry.counter("push.sse.replayed");
+		this.resynced = meterRegistry.counter("push.sse.resynced");
+		this.reaped = meterRegistry.counter("push.sse.reaped");
+
+		Gauge.builder("push.sse.connections", channels, map -> map.values().stream()
+						.mapToInt(Set::size)
+						.sum())
+				.tag("endpoint", "sse")
+				.register(meterRegistry);
+		Gauge.builder("push.sse.connections", listeners, Map::size)
+				.tag("endpoint", "listen")
+				.register(meterRegistry);
+		Gauge.builder("push.sse.buffer.bytes", open, count -> (double) count.get() * sendBuffer)
+				.description("Response buffers reserved by open connections")
+				.register(meterRegistry);
+
+		// one drain per connection at a time, so the queue can never hold more than there are connections
+		this.senders = new ThreadPoolExecutor(
+				senderThreads,
+				senderThreads,
+				0,
+				TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<>(maxConnections),
+				new CustomizableThreadFactory("sse-send-"));
+		Gauge.builder("push.sse.send.waiting", senders, pool -> pool.getQueue().size())
+				.description("Connections with events waiting for a sender thread")
+				.register(meterRegistry);
+
+		heartbeat.scheduleWithFixedDelay(this::beat, heartbeatInterval, heartbeatInterval, TimeUnit.MILLISECONDS);
+		eventBus.subscribe(this::onEvent);
+	}
+
+	/**
+	 * Admits a connection from {@code request}'s address, or throws {@link ConnectionLimitException}
+	 * before anything is allocated for it. The emitter is released from the limits however it ends.
+	 */
+	public SseEmitter open(String endpoint, long timeout, HttpServletRequest request, HttpServletResponse response) {
+		return open(endpoint, timeout, idleTimeout, request, response);
+	}
+
+	/**
+	 * As {@link #open(String, long, HttpServletRequest, HttpServletResponse)}, reaping the connection
+	 * after {@code idleTimeout} ms without an event. Zero leaves it to {@code timeout} alone, for
+	 * streams that can stay quiet for as long as they are open.
+	 */
+	public SseEmitter open(
+			String endpoint, long timeout, long idleTimeout, HttpServletRequest request, HttpServletResponse response) {
+		String address = request.getRemoteAddr();
+
+		if (open.incrementAndGet() > maxConnections) {
+			open.decrementAndGet();
+			throw reject(endpoint, "global", "Too many open connections");
+		}
+
+		if (!admit(address)) {
+			open.decrementAndGet();
+			throw reject(endpoint, "address", "Too many open connections from " + address);
+		}
+
+		response.setBufferSize(sendBuffer);
+
+		return track(new SseEmitter(timeout), address, idleTimeout);
+	}
+
+	/** Registers an admitted connection, releasing it from the limits however it ends. */
+	SseEmitter track(SseEmitter emitter, String address, long idleTimeout) {
+		connections.put(emitter, new Connection(address, idleTimeout));
+
+		emitter.onCompletion(() -> release(emitter));
+		emitter.onTimeout(() -> release(emitter));
+		emitter.onError(e -> release(emitter));
+
+		return emitter;
+	}
+
+	/**
+	 * Attaches {@code emitter} to the channel alongside any connections already on it, first sending
+	 * the buffered events after {@code lastEventId}. A new connection replays nothing and is given
+	 * the current id, so that a reconnect after it can be placed. An id this buffer did not issue,
+	 * from another node or an earlier buffer, is resynced with every event still buffered.
+	 */
+	public void add(String channel, SseEmitter emitter, String lastEventId) {
+		attach(channel, emitter, buffer -> {
+			if (lastEventId == null || lastEventId.isBlank()) {
+				return List.of(buffer.marker());
+			}
+
+			long after = buffer.place(lastEventId.trim());
+			if (after < 0) {
+				resynced.increment();
+				if (buffer.events.isEmpty()) {
+					return List.of(buffer.marker());
+				}
+			}
+
+			List<SseEventBuilder> missed =
+					buffer.since(after).stream().map(BufferedEvent::toSse).toList();
+			replayed.increment(missed.size());
+			return missed;
+		});
+	}
+
+	/**
+	 * Attaches {@code emitter} to the channel with {@code snapshot} as its first event instead of a
+	 * replay, for clients that rebuild their whole state from it. Events published after the snapshot
+	 * was taken always follow it.
+	 */
+	public void attach(String channel, SseEmitter emitter, Supplier<SseEventBuilder> snapshot) {
+		attach(channel, emitter, buffer -> List.of(snapshot.get()));
+	}
+
+	private void attach(String channel, SseEmitter emitter, Function<ReplayBuffer, List<SseEventBuilder>> initial) {
+		emitter.onCompletion(() -> detach(channel, emitter));
+		emitter.onTimeout(() -> detach(channel, emitter));
+		emitter.onError(e -> detach(channel, emitter));
+
+		ReplayBuffer buffer = replay.get(channel, key -> new ReplayBuffer());
+
+		// queued under the buffer's lock, so no live event overtakes the initial ones or is sent twice
+		synchronized (buffer) {
+			channels.computeIfAbsent(channel, key -> ConcurrentHashMap.newKeySet())
+					.add(emitter);
+
+			for (SseEventBuilder event : initial.apply(buffer)) {
+				enqueue(emitter, event, true, () -> detach(channel, emitter));
+			}
+		}
+	}
+
+	/** Sends {@code event} on every heartbeat until the connection closes. */
+	public void subscribe(SseEmitter emitter, Supplier<SseEventBuilder> event) {
+		listeners.put(emitter, event);
+
+		emitter.onCompletion(() -> listeners.remove(emitter));
+		emitter.onTimeout(() -> listeners.remove(emitter));
+		emitter.onError(e -> listeners.remove(emitter));
+	}
+
+	/** Sends a named event, with {@code data} as JSON, to the channel on any node. */
+	public void publish(String sessionId, String name, Object data) {
+		try {
+			eventBus.publish(PushEvent.of(sessionId, name, objectMapper.writeValueAsString(data)));
+		} catch (JsonProcessingException e) {
+			throw new IllegalArgumentException("Unserialisable push event " + name, e);
+		}
+	}
+
+	private void onEvent(PushEvent event) {
+		String channel = event.getChannel();
+
+		// buffered even with no connection here, as that is exactly when a reconnect needs it
+		ReplayBuffer buffer = replay.get(channel, key -> new ReplayBuffer());
+
+		synchronized (buffer) {
+			BufferedEvent buffered = buffer.append(event.getName(), event.getData(), replayEvents, replayBytes);
+
+			Set<SseEmitter> emitters = channels.get(channel);
+			if (emitters == null) {
+				return;
+			}
+
+			for (SseEmitter emitter : emitters) {
+				enqueue(emitter, buffered.toSse(), true, () -> detach(channel, emitter));
+			}
+		}
+	}
+
+	private void detach(String channel, SseEmitter emitter) {
+		channels.computeIfPresent(channel, (key, emitters) -> {
+			emitters.remove(emitter);
+			return emitters.isEmpty() ? null : emitters;
+		});
 	}
 
-	public Optional<org.springframework.web.servlet.mvc.method.annotation.SseEmitter> get(String sessionId) {
-		return Optional.ofNullable(emitters.get(sessionId));
+	private void beat() {
+		try {
+			channels.forEach((channel, emitters) -> {
+				for (SseEmitter emitter : emitters) {
+					beat(
+							emitter,
+							() -> SseEmitter.event().comment("keep-alive"),
+							false,
+							() -> detach(channel, emitter));
+				}
+			});
+			// a subscriber's tick is its event; push.sse.listen-timeout bounds those instead
+			listeners.forEach((emitter, event) -> beat(emitter, event, true, () -> listeners.remove(emitter)));
+			reapIdle();
+		} catch (RuntimeException e) {
+			// an exception would cancel every future heartbeat
+			log.warn("SSE heartbeat failed: {}", e.getMessage());
+		}
 	}
 
-	public void remove(String sessionId) {
-		emitters.remove(sessionId);
+	/** Queues a heartbeat, unless anything is already queued or being written to the connection. */
+	private void beat(SseEmitter emitter, Supplier<SseEventBuilder> event, boolean activity, Runnable onFailure) {
+		Connection connection = connections.get(emitter);
+		if (connection == null || connection.draining.get() || !connection.outbox.isEmpty()) {
+			return;
+		}
+
+		enqueue(emitter, event.get(), activity, onFailure);
+	}
+
+	/**
+	 * Queues {@code event} for the connection and makes sure a sender is draining it. Never blocks,
+	 * so it is safe under a channel's lock; events queued from there keep the channel's order.
+	 */
+	private void enqueue(SseEmitter emitter, SseEventBuilder event, boolean activity, Runnable onFailure) {
+		Connection connection = connections.get(emitter);
+		if (connection == null) {
+			onFailure.run();
+			return;
+		}
+
+		// a client this far behind has stopped reading
+		if (connection.outbox.size() >= maxQueuedEvents) {
+			connection.outbox.clear();
+			emitter.complete();
+			release(emitter);
+			dropped.increment();
+			onFailure.run();
+			return;
+		}
+
+		connection.outbox.add(new Outbound(event, activity, onFailure));
+		drain(emitter, connection);
+	}
+
+	private void drain(SseEmitter emitter, Connection connection) {
+		if (!connection.draining.compareAndSet(false, true)) {
+			return;
+		}
+
+		try {
+			senders.execute(() -> {
+				Outbound next;
+				while ((next = connection.outbox.poll()) != null) {
+					if (!deliver(emitter, next.event, next.activity)) {
+						next.onFailure.run();
+						connection.outbox.clear();
+					}
+				}
+				connection.draining.set(false);
+
+				// queued after the last poll but before the flag was cleared
+				if (!connection.outbox.isEmpty()) {
+					drain(emitter, connection);
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			// only once shutting down
+			connection.draining.set(false);
+		}
+	}
+
+	/** {@code activity}: whether the event keeps the connection from being reaped as idle. */
+	private boolean deliver(SseEmitter emitter, SseEventBuilder event, boolean activity) {
+		Connection connection = connections.get(emitter);
+
+		long start = System.nanoTime();
+		try {
+			emitter.send(event);
+			if (activity && connection != null) {
+				connection.lastActivity = System.currentTimeMillis();
+			}
+			return true;
+		} catch (IOException | IllegalStateException e) {
+			// IllegalStateException: the emitter was already completed
+			emitter.completeWithError(e);
+			release(emitter);
+			dropped.increment();
+			return false;
+		} finally {
+			sendTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+		}
+	}
+
+	private void reapIdle() {
+		long now = System.currentTimeMillis();
+		connections.forEach((emitter, connection) -> {
+			if (connection.idleTimeout > 0 && connection.lastActivity < now - connection.idleTimeout) {
+				emitter.complete();
+				release(emitter);
+				reaped.increment();
+			}
+		});
+	}
+
+	private boolean admit(String address) {
+		boolean[] admitted = {false};
+		perAddress.compute(address, (key, count) -> {
+			int current = count == null ? 0 : count;
+			if (current >= maxPerAddress) {
+				return count;
+			}
+			admitted[0] = true;
+			return current + 1;
+		});
+		return admitted[0];
+	}
+
+	private void release(SseEmitter emitter) {
+		Connection connection = connections.remove(emitter);
+
+		// completion, timeout and error callbacks can all fire for one connection
+		if (connection == null) {
+			return;
+		}
+
+		open.decrementAndGet();
+		perAddress.computeIfPresent(connection.address, (key, count) -> count > 1 ? count - 1 : null);
+	}
+
+	private ConnectionLimitException reject(String endpoint, String reason, String message) {
+		meterRegistry
+				.counter("push.sse.rejected", "endpoint", endpoint, "reason", reason)
+				.increment();
+		return new ConnectionLimitException(message);
+	}
+
+	@PreDestroy
+	public void shutdown() {
+		heartbeat.shutdownNow();
+		senders.shutdownNow();
+	}
+
+	private static final class Connection {
+
+		private final String address;
+		private final long idleTimeout;
+		private final Queue<Outbound> outbox = new ConcurrentLinkedQueue<>();
+		private final AtomicBoolean draining = new AtomicBoolean();
+		private volatile long lastActivity = System.currentTimeMillis();
+
+		Connection(String address, long idleTimeout) {
+			this.address = address;
+			this.idleTimeout = idleTimeout;
+		}
+	}
+
+	/** An event waiting in a connection's queue, and what to do if writing it fails. */
+	@RequiredArgsConstructor
+	private static final class Outbound {
+		private final SseEventBuilder event;
+		private final boolean activity;
+		private final Runnable onFailure;
+	}
+
+	/** A channel's recent events, oldest first. Guarded by its own monitor. */
+	private static final class ReplayBuffer {
+
+		private final String epoch = Long.toString(ThreadLocalRandom.current().nextLong() & Long.MAX_VALUE, 36);
+		private final Deque<BufferedEvent> events = new ArrayDeque<>();
+		private long lastId;
+		private int bytes;
+
+		BufferedEvent append(String name, String data, int maxEvents, int maxBytes) {
+			BufferedEvent event = new BufferedEvent(epoch, ++lastId, name, data);
+
+			// an event larger than the whole budget is still delivered, just not kept
+			if (event.size() > maxBytes) {
+				return event;
+			}
+
+			events.addLast(event);
+			bytes += event.size();
+
+			while (events.size() > maxEvents || bytes > maxBytes) {
+				bytes -= events.removeFirst().size();
+			}
+
+			return event;
+		}
+
+		/**
+		 * The sequence number in {@code lastEventId}, or -1 unless this buffer issued it, rather than
+		 * another node or an earlier buffer for the channel.
+		 */
+		long place(String lastEventId) {
+			int separator = lastEventId.indexOf(':');
+			if (separator < 0 || !epoch.equals(lastEventId.substring(0, separator))) {
+				return -1;
+			}
+			try {
+				long seq = Long.parseLong(lastEventId.substring(separator + 1));
+				return seq <= lastId ? seq : -1;
+			} catch (NumberFormatException e) {
+				return -1;
+			}
+		}
+
+		/** An event carrying only the current id, for a connection that has nothing to replay. */
+		SseEventBuilder marker() {
+			return SseEmitter.event().id(epoch + ":" + lastId);
+		}
+
+		List<BufferedEvent> since(long lastEventId) {
+			return events.stream().filter(event -> event.getId() > lastEventId).toList();
+		}
+	}
+
+	@Getter
+	@RequiredArgsConstructor
+	private static final class BufferedEvent {
+		private final String epoch;
+		private final long id;
+		private final String name;
+		private final String data;
+
+		/** Approximate retained size: JSON payloads are ASCII, which the JVM stores a byte a char. */
+		int size() {
+			return name.length() + data.length();
+		}
+
+		SseEventBuilder toSse() {
+			return SseEmitter.event().id(epoch + ":" + id).name(name).data(data);
+		}
 	}
 }
@@ -12,9 +12,11 @@ import java.util.Optional;
 import lombok.extern.slf4j.Slf4j;
 import northjosh.auth.dto.AuthResponse;
 import northjosh.auth.exceptions.WebAuthnException;
-import northjosh.auth.repo.user.User;
+import northjosh.auth.services.auth.RefreshTokenService;
 import northjosh.auth.services.jwt.JwtService;
 import northjosh.auth.services.user.UserService;
+import northjosh.auth.services.user.UserSnapshot;
+import northjosh.auth.services.webauthn.SignatureCountWriter;
 import northjosh.auth.services.webauthn.WebAuthnChallengeService;
 import org.springframework.web.bind.annotation.*;
 
@@ -27,16 +29,22 @@ public class WebAuthnAuthController {
 	private final WebAuthnChallengeService challengeService;
 	private final JwtService jwtService;
 	private final UserService userService;
+	private final RefreshTokenService refreshTokenService;
+	private final SignatureCountWriter signatureCountWriter;
 
 	public WebAuthnAuthController(
 			RelyingParty relyingParty,
 			WebAuthnChallengeService challengeService,
 			JwtService jwtService,
-			UserService userService) {
+			UserService userService,
+			RefreshTokenService refreshTokenService,
+			SignatureCountWriter signatureCountWriter) {
 		this.relyingParty = relyingParty;
 		this.challengeService = challengeService;
 		this.jwtService = jwtService;
 		this.userService = userService;
+		this.refreshTokenService = refreshTokenService;
+		this.signatureCountWriter = signatureCountWriter;
 	}
 
 	@PostMapping("/options")
@@ -46,10 +54,10 @@ public class WebAuthnAuthController {
 
 			if (request != null && request.containsKey("email")) {
 				String email = request.get("email");
-				User user = userService.get(email);
-				if (user != null && !user.getCredentials().isEmpty()) {
+				UserSnapshot user = userService.snapshot(email);
+				if (user.hasCredentials()) {
 					// Get user's credentials and add them as allowed credentials
-					optionsBuilder.userHandle(Optional.of(new ByteArray(user.getUserId())));
+					optionsBuilder.userHandle(Optional.of(user.getUserId()));
 				}
 			}
 
@@ -88,7 +96,8 @@ public class WebAuthnAuthController {
 					.publicKeyCredentialRequestOptions(storedOptions)
 					.build();
 
-			User user = userService.findUserByCredentialId(credential.getId().getBase64Url());
+			String email =
+					userService.findEmailByCredentialId(credential.getId().getBase64Url());
 
 			// Create finish assertion options
 			FinishAssertionOptions finishOptions = FinishAssertionOptions.builder()
@@ -100,13 +109,13 @@ public class WebAuthnAuthController {
 			AssertionResult result = relyingParty.finishAssertion(finishOptions);
 
 			if (result.isSuccess()) {
-				// Update signature count in database
-				userService.updateSignatureCount(credential.getId().getBase64Url(), result.getSignatureCount());
+				// Buffered and written in the next batch
+				signatureCountWriter.record(credential.getId().getBytes(), result.getSignatureCount());
 
 				// Generate JWT token
-				String token = jwtService.generateAccessToken(user.getEmail());
+				String token = jwtService.generateAccessToken(email);
 
-				return new AuthResponse(token, false);
+				return new AuthResponse(token, false, refreshTokenService.issue(email));
 			} else {
 				throw new WebAuthnException("Authentication Failed");
 			}
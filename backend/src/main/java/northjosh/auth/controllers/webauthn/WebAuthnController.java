@@ -3,16 +3,12 @@ package northjosh.auth.controllers.webauthn;
 import com.yubico.webauthn.*;
 import com.yubico.webauthn.data.*;
 import com.yubico.webauthn.exception.RegistrationFailedException;
-import jakarta.persistence.NoResultException;
 import java.util.List;
 import java.util.Map;
-import northjosh.auth.exceptions.WebAuthnException;
-import northjosh.auth.repo.user.User;
-import northjosh.auth.repo.webauthn.WebAuthnCredential;
-import northjosh.auth.repo.webauthn.WebAuthnCredentialRepo;
 import northjosh.auth.repo.webauthn.challenge.WebAuthnChallengeRepo;
-import northjosh.auth.services.jwt.JwtService;
+import northjosh.auth.services.jwt.TokenClaims;
 import northjosh.auth.services.user.UserService;
+import northjosh.auth.services.user.UserSnapshot;
 import northjosh.auth.services.webauthn.WebAuthnChallengeService;
 import org.springframework.web.bind.annotation.*;
 
@@ -20,36 +16,30 @@ import org.springframework.web.bind.annotation.*;
 @RequestMapping("/webauthn")
 public class WebAuthnController {
 	private final RelyingParty rp;
-	private final WebAuthnCredentialRepo webAuthnCredentialRepo;
 	private final WebAuthnChallengeService webAuthnChallengeService;
-	private final JwtService jwtService;
 	private final WebAuthnChallengeRepo webAuthnChallengeRepo;
 	private final UserService userService;
 
 	public WebAuthnController(
 			RelyingParty rp,
-			WebAuthnCredentialRepo webAuthnCredentialRepo,
 			WebAuthnChallengeService webAuthnChallengeService,
-			JwtService jwtService,
 			WebAuthnChallengeRepo webAuthnChallengeRepo,
 			UserService userService) {
 		this.rp = rp;
-		this.webAuthnCredentialRepo = webAuthnCredentialRepo;
 		this.webAuthnChallengeService = webAuthnChallengeService;
-		this.jwtService = jwtService;
 		this.webAuthnChallengeRepo = webAuthnChallengeRepo;
 		this.userService = userService;
 	}
 
 	@PostMapping("/register/options")
-	public PublicKeyCredentialCreationOptions start(@RequestHeader("Authorization") String authHeader) {
-		User user = validateAndFetchUser(authHeader);
+	public PublicKeyCredentialCreationOptions start(TokenClaims claims) {
+		UserSnapshot user = userService.snapshot(claims.getEmail());
 
 		StartRegistrationOptions options = StartRegistrationOptions.builder()
 				.user(UserIdentity.builder()
 						.name(user.getEmail())
 						.displayName(user.getFirstName() + " " + user.getLastName())
-						.id(new ByteArray(user.getUserId()))
+						.id(user.getUserId())
 						.build())
 				.authenticatorSelection(AuthenticatorSelectionCriteria.builder()
 						.residentKey(ResidentKeyRequirement.REQUIRED)
@@ -66,12 +56,11 @@ public class WebAuthnController {
 
 	@PostMapping("/register")
 	public Map<String, String> finish(
-			@RequestHeader("Authorization") String authHeader,
+			TokenClaims claims,
 			@RequestBody
 					PublicKeyCredential<AuthenticatorAttestationResponse, ClientRegistrationExtensionOutputs>
 							response) {
-		User user = validateAndFetchUser(authHeader);
-		String email = user.getEmail();
+		String email = userService.snapshot(claims.getEmail()).getEmail();
 		PublicKeyCredentialCreationOptions options = webAuthnChallengeService.getChallenge(email);
 		webAuthnChallengeRepo.deleteByEmail(email);
 
@@ -92,10 +81,8 @@ public class WebAuthnController {
 	}
 
 	@GetMapping("/credentials")
-	public List<Map<String, Object>> getCredentials(@RequestHeader("Authorization") String authHeader) {
-		User user = validateAndFetchUser(authHeader);
-
-		return user.getCredentials().stream()
+	public List<Map<String, Object>> getCredentials(TokenClaims claims) {
+		return userService.listCredentials(claims.getEmail()).stream()
 				.map(cred -> Map.<String, Object>of(
 						"id", cred.getId(),
 						"credentialId", java.util.Base64.getEncoder().encodeToString(cred.getCredentialId()),
@@ -104,30 +91,8 @@ public class WebAuthnController {
 	}
 
 	@DeleteMapping("/credentials/{credentialId}")
-	public Map<String, String> deleteCredential(
-			@RequestHeader("Authorization") String authHeader, @PathVariable Long credentialId) {
-		User user = validateAndFetchUser(authHeader);
-
-		WebAuthnCredential credential =
-				webAuthnCredentialRepo.findById(credentialId).orElse(null);
-		if (credential == null || !credential.getUser().getId().equals(user.getId())) {
-			throw new NoResultException("Credential Not Found");
-		}
-
-		webAuthnCredentialRepo.delete(credential);
+	public Map<String, String> deleteCredential(TokenClaims claims, @PathVariable Long credentialId) {
+		userService.deleteCredential(claims.getEmail(), credentialId);
 		return Map.of("message", "WebAuthn credential deleted successfully");
 	}
-
-	private User validateAndFetchUser(@RequestHeader("Authorization") String authHeader) {
-		if (authHeader == null || !authHeader.startsWith("Bearer ")) throw new WebAuthnException("Invalid Token");
-
-		String token = authHeader.substring(7);
-
-		if (jwtService.isPendingToken(token)) {
-			throw new WebAuthnException("Invalid Token");
-		}
-
-		String email = jwtService.getUsername(token);
-		return userService.get(email);
-	}
 }
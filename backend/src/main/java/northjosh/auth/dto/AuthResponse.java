@@ -9,4 +9,9 @@ public class AuthResponse {
 
 	private String Token;
 	private boolean totpRequired;
+	private String refreshToken;
+
+	public AuthResponse(String token, boolean totpRequired) {
+		this(token, totpRequired, null);
+	}
 }
@@ -0,0 +1,60 @@
+package northjosh.auth.dto;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import lombok.Value;
+import northjosh.auth.exceptions.InvalidCursorException;
+
+/**
+ * Position in a keyset page ordered by {@code (createdAt, id)}: the last row the client has seen.
+ * Clients get it opaque, as {@code nextCursor}, and send it back unchanged.
+ */
+@Value
+public class PageCursor {
+
+	public static final int DEFAULT_SIZE = 20;
+	public static final int MAX_SIZE = 100;
+
+	LocalDateTime createdAt;
+	String id;
+
+	/** Whether {@code (createdAt, id)} sorts after this cursor, ascending. */
+	public boolean precedes(LocalDateTime createdAt, String id) {
+		int order = createdAt.compareTo(this.createdAt);
+		return order > 0 || (order == 0 && id.compareTo(this.id) > 0);
+	}
+
+	public String encode() {
+		String raw = createdAt + "|" + id;
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Null for a missing or blank cursor, meaning the first page. Anything that is not a cursor this
+	 * class encoded throws {@link InvalidCursorException}.
+	 */
+	public static PageCursor decode(String cursor) {
+		if (cursor == null || cursor.isBlank()) {
+			return null;
+		}
+
+		try {
+			String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+			String[] parts = raw.split("\\|", 2);
+			if (parts.length != 2) {
+				throw new InvalidCursorException("Invalid cursor", null);
+			}
+			return new PageCursor(LocalDateTime.parse(parts[0]), parts[1]);
+		} catch (IllegalArgumentException | DateTimeParseException e) {
+			// bad base64 or a bad timestamp
+			throw new InvalidCursorException("Invalid cursor", e);
+		}
+	}
+
+	/** {@code size} limited to 1..{@value #MAX_SIZE}. */
+	public static int clamp(int size) {
+		return Math.max(1, Math.min(size, MAX_SIZE));
+	}
+}
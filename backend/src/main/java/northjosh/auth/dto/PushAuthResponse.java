@@ -6,6 +6,7 @@ import lombok.Data;
 public class PushAuthResponse {
 	private String otp;
 	private String requestId;
+	private String exchangeKey;
 	private String email;
 	private UserDto user;
 }
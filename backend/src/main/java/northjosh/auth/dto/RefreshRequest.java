@@ -0,0 +1,10 @@
+package northjosh.auth.dto;
+
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+
+@Data
+public class RefreshRequest {
+
+	@NotNull private String refreshToken;
+}
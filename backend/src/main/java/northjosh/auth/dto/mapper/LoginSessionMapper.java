@@ -0,0 +1,12 @@
+package northjosh.auth.dto.mapper;
+
+import northjosh.auth.dto.response.LoginSessionDto;
+import northjosh.auth.repo.refresh.RefreshTokenFamily;
+import org.mapstruct.Mapper;
+import org.mapstruct.ReportingPolicy;
+
+@Mapper(componentModel = "spring", unmappedTargetPolicy = ReportingPolicy.ERROR)
+public interface LoginSessionMapper {
+
+	LoginSessionDto toDto(RefreshTokenFamily family);
+}
@@ -0,0 +1,26 @@
+package northjosh.auth.dto.mapper;
+
+import northjosh.auth.dto.PushAuthResponse;
+import northjosh.auth.dto.response.PushAuthDto;
+import northjosh.auth.services.otp.PushAttempt;
+import northjosh.auth.services.user.UserSnapshot;
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+import org.mapstruct.ReportingPolicy;
+
+@Mapper(componentModel = "spring", uses = UserMapper.class, unmappedTargetPolicy = ReportingPolicy.ERROR)
+public interface PushAuthMapper {
+
+	@Mapping(target = "otp", source = "attempt.otp")
+	@Mapping(target = "requestId", source = "attempt.requestId")
+	@Mapping(target = "exchangeKey", source = "exchangeKey")
+	@Mapping(target = "email", source = "user.email")
+	@Mapping(target = "user", source = "user")
+	PushAuthResponse toResponse(PushAttempt attempt, UserSnapshot user, String exchangeKey);
+
+	@Mapping(target = "deviceFamily", source = "clientInfo.deviceFamily")
+	@Mapping(target = "osFamily", source = "clientInfo.osFamily")
+	@Mapping(target = "userAgentFamily", source = "clientInfo.userAgentFamily")
+	@Mapping(target = "remoteAddress", source = "clientInfo.remoteAddress")
+	PushAuthDto toDto(PushAttempt attempt);
+}
@@ -0,0 +1,42 @@
+package northjosh.auth.dto.mapper;
+
+import northjosh.auth.dto.SignUpDto;
+import northjosh.auth.dto.UserDto;
+import northjosh.auth.repo.user.User;
+import northjosh.auth.services.user.UserSnapshot;
+import northjosh.auth.services.user.UserUpdate;
+import org.mapstruct.BeanMapping;
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+import org.mapstruct.MappingTarget;
+import org.mapstruct.NullValuePropertyMappingStrategy;
+import org.mapstruct.ReportingPolicy;
+
+@Mapper(componentModel = "spring", unmappedTargetPolicy = ReportingPolicy.ERROR)
+public interface UserMapper {
+
+	@Mapping(target = "webAuthnEnabled", ignore = true)
+	UserDto toDto(User user);
+
+	@Mapping(target = "webAuthnEnabled", expression = "java(user.hasCredentials())")
+	UserDto toDto(UserSnapshot user);
+
+	/** Everything but the profile fields is set by the caller or generated on persist. */
+	@Mapping(target = "id", ignore = true)
+	@Mapping(target = "userId", ignore = true)
+	@Mapping(target = "password", ignore = true)
+	@Mapping(target = "totpSecret", ignore = true)
+	@Mapping(target = "emailVerified", ignore = true)
+	@Mapping(target = "credentials", ignore = true)
+	@Mapping(target = "createdBy", ignore = true)
+	@Mapping(target = "lastModifiedBy", ignore = true)
+	@Mapping(target = "createdAt", ignore = true)
+	@Mapping(target = "updatedAt", ignore = true)
+	User toUser(SignUpDto dto);
+
+	/** Copies the fields the update sets, leaving the rest of {@code user} untouched. */
+	@BeanMapping(
+			nullValuePropertyMappingStrategy = NullValuePropertyMappingStrategy.IGNORE,
+			unmappedTargetPolicy = ReportingPolicy.IGNORE)
+	void apply(UserUpdate update, @MappingTarget User user);
+}
@@ -0,0 +1,14 @@
+package northjosh.auth.dto.response;
+
+import java.util.List;
+import java.util.Map;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/** RFC 7517 JWK Set. Served as-is rather than wrapped in {@link ApiResponse}. */
+@Data
+@AllArgsConstructor
+public class JsonWebKeySet {
+
+	private List<Map<String, Object>> keys;
+}
@@ -0,0 +1,13 @@
+package northjosh.auth.dto.response;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import lombok.Data;
+
+@Data
+public class LoginSessionDto {
+	private String id;
+	private LocalDateTime createdAt;
+	private Instant expiresAt;
+	private boolean revoked;
+}
@@ -9,7 +9,9 @@ package northjosh.auth.dto.response;
 import java.io.Serial;
 import java.io.Serializable;
 import java.util.List;
+import java.util.function.Function;
 import lombok.Data;
+import northjosh.auth.dto.PageCursor;
 import org.springframework.data.domain.Page;
 
 @Data
@@ -27,6 +29,8 @@ public class PagedContent<T> implements Serializable {
 	private boolean isFirst;
 	private boolean isLast;
 
+	private String nextCursor;
+
 	private List<T> data;
 
 	public PagedContent(Page<?> pagedData, List<T> data) {
@@ -40,4 +44,31 @@ public class PagedContent<T> implements Serializable {
 		this.setFirst(pagedData.isFirst());
 		this.setLast(pagedData.isLast());
 	}
+
+	/** A keyset page. Nothing is counted, so totalElements and totalPages are -1. */
+	public PagedContent(List<T> data, int size, boolean hasPreviousPage, String nextCursor) {
+		this.setData(data);
+		this.setTotalElements(-1);
+		this.setTotalPages(-1);
+		this.setSize(size);
+		this.setHasNextPage(nextCursor != null);
+		this.setHasPreviousPage(hasPreviousPage);
+		this.setFirst(!hasPreviousPage);
+		this.setLast(nextCursor == null);
+		this.setNextCursor(nextCursor);
+	}
+
+	/**
+	 * Builds a keyset page from rows fetched with a limit of {@code size + 1}; the extra row only
+	 * shows that a next page exists.
+	 */
+	public static <R, T> PagedContent<T> keyset(
+			List<R> rows, int size, PageCursor after, Function<R, PageCursor> cursor, Function<R, T> mapper) {
+		boolean hasNext = rows.size() > size;
+		List<R> page = hasNext ? rows.subList(0, size) : rows;
+
+		String nextCursor = hasNext ? cursor.apply(page.get(page.size() - 1)).encode() : null;
+
+		return new PagedContent<>(page.stream().map(mapper).toList(), size, after != null, nextCursor);
+	}
 }
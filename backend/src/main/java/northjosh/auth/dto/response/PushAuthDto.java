@@ -8,4 +8,8 @@ public class PushAuthDto {
 	private String requestId;
 	private String email;
 	private LocalDateTime createdAt;
+	private String deviceFamily;
+	private String osFamily;
+	private String userAgentFamily;
+	private String remoteAddress;
 }
@@ -0,0 +1,8 @@
+package northjosh.auth.exceptions;
+
+public class ConnectionLimitException extends RuntimeException {
+
+	public ConnectionLimitException(String msg) {
+		super(msg);
+	}
+}
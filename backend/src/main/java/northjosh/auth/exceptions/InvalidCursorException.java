@@ -0,0 +1,8 @@
+package northjosh.auth.exceptions;
+
+public class InvalidCursorException extends RuntimeException {
+
+	public InvalidCursorException(String msg, Throwable cause) {
+		super(msg, cause);
+	}
+}
@@ -0,0 +1,8 @@
+package northjosh.auth.exceptions;
+
+public class ServiceBusyException extends RuntimeException {
+
+	public ServiceBusyException(String msg) {
+		super(msg);
+	}
+}
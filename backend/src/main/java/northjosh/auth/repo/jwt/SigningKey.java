@@ -0,0 +1,54 @@
+package northjosh.auth.repo.jwt;
+
+import jakarta.persistence.*;
+import java.time.Instant;
+import lombok.Data;
+
+@Entity
+@Table(name = "signing_keys")
+@Data
+public class SigningKey {
+
+	@Id
+	private String kid;
+
+	@Column(nullable = false)
+	private String algorithm;
+
+	/**
+	 * One more than the newest key the rotating node knew of. Unique, so when several nodes rotate
+	 * from the same view only one insert succeeds. Null for keys from before it was added.
+	 */
+	@Column(unique = true)
+	private Long generation;
+
+	/** HMAC secret, or the PKCS#8 private key for asymmetric algorithms; sealed if {@link #encrypted}. */
+	@Column(nullable = false)
+	private byte[] secret;
+
+	/** Whether {@link #secret} is sealed with {@code jwt.keys.encryption-key}. Null for older keys. */
+	@Column
+	private Boolean encrypted;
+
+	/** X.509 public key for asymmetric algorithms, published through the JWKS endpoint. */
+	@Column
+	private byte[] publicKey;
+
+	@Column(nullable = false)
+	private Instant createdAt;
+
+	/**
+	 * New tokens are signed with this key from then; until then it is only published, so caches of
+	 * the JWKS pick it up first. Null for keys from before it was added, which were active at once.
+	 */
+	@Column
+	private Instant activeFrom;
+
+	/** New tokens are signed with this key until then. */
+	@Column(nullable = false)
+	private Instant activeUntil;
+
+	/** Tokens signed with this key are accepted until then. */
+	@Column(nullable = false)
+	private Instant expiresAt;
+}
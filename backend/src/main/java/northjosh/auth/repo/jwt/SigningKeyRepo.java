@@ -0,0 +1,20 @@
+package northjosh.auth.repo.jwt;
+
+import jakarta.transaction.Transactional;
+import java.time.Instant;
+import java.util.List;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface SigningKeyRepo extends JpaRepository<SigningKey, String> {
+
+	List<SigningKey> findAllByExpiresAtAfter(Instant now);
+
+	@Modifying
+	@Transactional
+	@Query("delete from SigningKey k where k.expiresAt < :cutoff")
+	void deleteExpired(Instant cutoff);
+}
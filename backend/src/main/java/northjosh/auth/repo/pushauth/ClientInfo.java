@@ -1,24 +1,38 @@
 package northjosh.auth.repo.pushauth;
 
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
 import jakarta.servlet.http.HttpServletRequest;
+import lombok.AccessLevel;
 import lombok.Getter;
+import lombok.NoArgsConstructor;
 import ua_parser.Client;
-import ua_parser.Parser;
 
 @Getter
+@Embeddable
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
 public class ClientInfo {
 
-	private final String deviceFamily;
-	private final String osFamily;
-	private final String userAgentFamily;
-	private final String remoteHost;
-	private final String remoteUser;
-	private final String remoteAddress;
-
-	public ClientInfo(HttpServletRequest request) {
-		String userAgent = request.getHeader("user-agent");
-		Parser uaParser = new Parser();
-		Client client = uaParser.parse(userAgent);
+	@Column
+	private String deviceFamily;
+
+	@Column
+	private String osFamily;
+
+	@Column
+	private String userAgentFamily;
+
+	@Column
+	private String remoteHost;
+
+	@Column
+	private String remoteUser;
+
+	@Column
+	private String remoteAddress;
+
+	/** {@code client} is the request's parsed User-Agent, see {@code UserAgentParser}. */
+	public ClientInfo(HttpServletRequest request, Client client) {
 		this.remoteAddress = request.getRemoteAddr();
 		this.remoteHost = request.getRemoteHost();
 		this.remoteUser = request.getRemoteUser();
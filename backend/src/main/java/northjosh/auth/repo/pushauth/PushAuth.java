@@ -10,7 +10,11 @@ import org.hibernate.annotations.UpdateTimestamp;
 import org.hibernate.annotations.UuidGenerator;
 
 @Entity
-@Table
+@Table(
+		indexes = {
+			@Index(name = "idx_push_auth_user_created", columnList = "user_id, createdAt, requestId"),
+			@Index(name = "idx_push_auth_created", columnList = "createdAt")
+		})
 @Getter
 @Setter
 public class PushAuth {
@@ -23,12 +27,19 @@ public class PushAuth {
 	@Column(nullable = false)
 	private String otp;
 
+	/** See {@code PushAttempt#exchangeKeyHash}. */
+	private String exchangeKeyHash;
+
 	@Column(nullable = false, unique = true)
 	private String requestId;
 
-	@OneToOne
+	@ManyToOne
 	private User user;
 
+	/** The device that asked to log in, shown to the user approving it. */
+	@Embedded
+	private ClientInfo clientInfo;
+
 	@CreationTimestamp
 	private LocalDateTime createdAt;
 
@@ -3,7 +3,9 @@ package northjosh.auth.repo.pushauth;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 @Repository
@@ -11,9 +13,16 @@ public interface PushAuthRepo extends JpaRepository<PushAuth, String> {
 
 	Optional<PushAuth> findPushAuthByRequestId(String requestId);
 
-	List<PushAuth> findAllByUserEmail(String email);
+	@Query("select p from PushAuth p join fetch p.user u where u.email = :email and p.createdAt > :expiredBefore "
+			+ "order by p.createdAt, p.requestId")
+	List<PushAuth> findPage(String email, LocalDateTime expiredBefore, Limit limit);
 
-	void deletePushAuthByRequestId(String requestId);
+	/** The page after {@code (createdAt, requestId)}, seeking on {@code idx_push_auth_user_created}. */
+	@Query("select p from PushAuth p join fetch p.user u where u.email = :email and p.createdAt > :expiredBefore "
+			+ "and (p.createdAt > :createdAt or (p.createdAt = :createdAt and p.requestId > :requestId)) "
+			+ "order by p.createdAt, p.requestId")
+	List<PushAuth> findPageAfter(
+			String email, LocalDateTime expiredBefore, LocalDateTime createdAt, String requestId, Limit limit);
 
-	void deletePushAuthByCreatedAtBefore(LocalDateTime cutoff);
+	void deletePushAuthByRequestId(String requestId);
 }
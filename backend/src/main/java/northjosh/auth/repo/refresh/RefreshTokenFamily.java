@@ -0,0 +1,39 @@
+package northjosh.auth.repo.refresh;
+
+import jakarta.persistence.*;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import lombok.Data;
+import org.hibernate.annotations.CreationTimestamp;
+
+/**
+ * One row per login session. Only the id of the newest refresh token in the family is kept, so
+ * presenting any older token from the same family is a replay. Until they expire the rows double as
+ * the user's login history.
+ */
+@Entity
+@Table(
+		name = "refresh_token_families",
+		indexes = @Index(name = "idx_refresh_token_families_email_created", columnList = "email, createdAt, id"))
+@Data
+public class RefreshTokenFamily {
+
+	@Id
+	private String id;
+
+	@Column(nullable = false)
+	private String email;
+
+	@Column(nullable = false)
+	private String currentTokenId;
+
+	@Column(nullable = false)
+	private Instant expiresAt;
+
+	@Column
+	private boolean revoked;
+
+	/** Null on families issued before login history was kept; those are left out of it. */
+	@CreationTimestamp
+	private LocalDateTime createdAt;
+}
@@ -0,0 +1,42 @@
+package northjosh.auth.repo.refresh;
+
+import jakarta.transaction.Transactional;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.List;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface RefreshTokenFamilyRepo extends JpaRepository<RefreshTokenFamily, String> {
+
+	/** Moves the family on to {@code next} only if {@code current} is still its newest token. */
+	@Modifying
+	@Transactional
+	@Query("update RefreshTokenFamily f set f.currentTokenId = :next, f.expiresAt = :expiresAt "
+			+ "where f.id = :id and f.currentTokenId = :current and f.revoked = false")
+	int rotate(String id, String current, String next, Instant expiresAt);
+
+	@Modifying
+	@Transactional
+	@Query("update RefreshTokenFamily f set f.revoked = true where f.id = :id")
+	void revoke(String id);
+
+	@Query("select f from RefreshTokenFamily f where f.email = :email and f.createdAt is not null "
+			+ "order by f.createdAt desc, f.id desc")
+	List<RefreshTokenFamily> findHistory(String email, Limit limit);
+
+	/** The page before {@code (createdAt, id)}, seeking on {@code idx_refresh_token_families_email_created}. */
+	@Query("select f from RefreshTokenFamily f where f.email = :email "
+			+ "and (f.createdAt < :createdAt or (f.createdAt = :createdAt and f.id < :id)) "
+			+ "order by f.createdAt desc, f.id desc")
+	List<RefreshTokenFamily> findHistoryBefore(String email, LocalDateTime createdAt, String id, Limit limit);
+
+	@Modifying
+	@Transactional
+	@Query("delete from RefreshTokenFamily f where f.expiresAt < :cutoff")
+	int deleteExpired(Instant cutoff);
+}
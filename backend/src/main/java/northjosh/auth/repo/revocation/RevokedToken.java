@@ -0,0 +1,21 @@
+package northjosh.auth.repo.revocation;
+
+import jakarta.persistence.*;
+import java.time.Instant;
+import lombok.Data;
+
+@Entity
+@Table(name = "revoked_tokens")
+@Data
+public class RevokedToken {
+
+	@Id
+	private String jti;
+
+	/** The revoked token's own expiry; the row is useless after that. */
+	@Column(nullable = false)
+	private Instant expiresAt;
+
+	@Column(nullable = false)
+	private Instant revokedAt;
+}
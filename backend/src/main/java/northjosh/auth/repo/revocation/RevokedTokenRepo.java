@@ -0,0 +1,30 @@
+package northjosh.auth.repo.revocation;
+
+import jakarta.transaction.Transactional;
+import java.time.Instant;
+import java.util.List;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface RevokedTokenRepo extends JpaRepository<RevokedToken, String> {
+
+	@Query("select r.jti from RevokedToken r where r.expiresAt > :now")
+	List<String> findLiveIds(Instant now);
+
+	/** One row inserted, or none if the {@code jti} is already there. */
+	@Modifying
+	@Transactional
+	@Query(
+			value = "insert into revoked_tokens (jti, expires_at, revoked_at) values (:jti, :expiresAt, :revokedAt)"
+					+ " on conflict do nothing",
+			nativeQuery = true)
+	int insertIfAbsent(String jti, Instant expiresAt, Instant revokedAt);
+
+	@Modifying
+	@Transactional
+	@Query("delete from RevokedToken r where r.expiresAt < :cutoff")
+	int deleteExpired(Instant cutoff);
+}
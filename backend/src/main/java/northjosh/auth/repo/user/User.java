@@ -60,7 +60,7 @@ public class User {
 	@Column
 	private boolean emailVerified;
 
-	@OneToMany(mappedBy = "user", cascade = CascadeType.ALL, fetch = FetchType.EAGER, orphanRemoval = true)
+	@OneToMany(mappedBy = "user", cascade = CascadeType.ALL, fetch = FetchType.LAZY, orphanRemoval = true)
 	private List<WebAuthnCredential> credentials = new ArrayList<>();
 
 	@CreatedBy
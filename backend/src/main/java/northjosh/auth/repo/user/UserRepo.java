@@ -1,7 +1,11 @@
 package northjosh.auth.repo.user;
 
+import jakarta.transaction.Transactional;
+import java.util.List;
 import java.util.Optional;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 @Repository
@@ -10,4 +14,18 @@ public interface UserRepo extends JpaRepository<User, Long> {
 	Optional<User> findByEmail(String email);
 
 	Optional<User> findByUserId(byte[] userId);
+
+	@Query("select u.email from User u where u.userId = :userId")
+	Optional<String> findEmailByUserId(byte[] userId);
+
+	@Query("select new northjosh.auth.repo.user.UserRow(u.id, u.userId, u.email, u.firstName, u.lastName,"
+			+ " u.password, u.totpSecret, u.totpEnabled, u.emailVerified, c.id, c.credentialId)"
+			+ " from User u left join u.credentials c where u.email = :email")
+	List<UserRow> findRowsByEmail(String email);
+
+	/** Replaces the hash only if it is still {@code current}, so a concurrent password change wins. */
+	@Modifying
+	@Transactional
+	@Query("update User u set u.password = :replacement where u.id = :id and u.password = :current")
+	int replacePassword(Long id, String current, String replacement);
 }
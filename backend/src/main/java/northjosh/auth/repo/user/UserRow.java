@@ -0,0 +1,23 @@
+package northjosh.auth.repo.user;
+
+import lombok.Value;
+
+/**
+ * Flat read of a user joined to its credentials: one row per credential, or a single row with null
+ * credential columns when there are none. Only the credential id columns are selected, never the
+ * key material.
+ */
+@Value
+public class UserRow {
+	Long id;
+	byte[] userId;
+	String email;
+	String firstName;
+	String lastName;
+	String password;
+	String totpSecret;
+	boolean totpEnabled;
+	boolean emailVerified;
+	Long credentialKey;
+	byte[] credentialId;
+}
@@ -0,0 +1,11 @@
+package northjosh.auth.repo.webauthn;
+
+import lombok.Value;
+
+/** The columns shown when a user lists their registered passkeys. */
+@Value
+public class CredentialListing {
+	Long id;
+	byte[] credentialId;
+	long signatureCount;
+}
@@ -9,34 +9,31 @@ import java.util.Arrays;
 import java.util.Optional;
 import java.util.Set;
 import java.util.stream.Collectors;
-import northjosh.auth.repo.user.User;
-import northjosh.auth.repo.user.UserRepo;
 import northjosh.auth.services.user.UserService;
+import northjosh.auth.services.webauthn.SignatureCountWriter;
 import org.springframework.stereotype.Component;
 
 @Component
 public class DatabaseCredentialRepository implements CredentialRepository {
 
-	final UserRepo userRepo;
 	final WebAuthnCredentialRepo webAuthnCredentialRepo;
 	private final UserService userService;
+	private final SignatureCountWriter signatureCountWriter;
 
 	public DatabaseCredentialRepository(
-			UserRepo userRepo, WebAuthnCredentialRepo webAuthnCredentialRepo, UserService userService) {
-		this.userRepo = userRepo;
+			WebAuthnCredentialRepo webAuthnCredentialRepo,
+			UserService userService,
+			SignatureCountWriter signatureCountWriter) {
 		this.webAuthnCredentialRepo = webAuthnCredentialRepo;
 		this.userService = userService;
+		this.signatureCountWriter = signatureCountWriter;
 	}
 
 	@Override
 	public Set<PublicKeyCredentialDescriptor> getCredentialIdsForUsername(String email) {
-		System.out.println(email);
-
-		System.out.println(userRepo.findByEmail(email));
-
-		return userService.get(email).getCredentials().stream()
+		return userService.snapshot(email).getCredentials().stream()
 				.map(cred -> PublicKeyCredentialDescriptor.builder()
-						.id(new ByteArray(cred.getCredentialId()))
+						.id(cred.getCredentialId())
 						.transports(Optional.ofNullable(null))
 						.type(PublicKeyCredentialType.PUBLIC_KEY)
 						.build())
@@ -45,12 +42,12 @@ public class DatabaseCredentialRepository implements CredentialRepository {
 
 	@Override
 	public Optional<ByteArray> getUserHandleForUsername(String email) {
-		return Optional.of(userService.get(email)).map(user -> new ByteArray(user.getUserId()));
+		return Optional.of(userService.snapshot(email).getUserId());
 	}
 
 	@Override
 	public Optional<String> getUsernameForUserHandle(ByteArray userHandle) {
-		return userRepo.findByUserId(userHandle.getBytes()).map(User::getEmail);
+		return userService.findEmailByUserHandle(userHandle.getBytes());
 	}
 
 	@Override
@@ -58,24 +55,24 @@ public class DatabaseCredentialRepository implements CredentialRepository {
 		return webAuthnCredentialRepo
 				.findByCredentialId(credentialId.getBytes())
 				.filter(c -> Arrays.equals(c.getUserHandle(), userHandle.getBytes()))
-				.map(c -> RegisteredCredential.builder()
-						.credentialId(new ByteArray(c.getCredentialId()))
-						.userHandle(new ByteArray(c.getUserHandle()))
-						.publicKeyCose(new ByteArray(c.getPublicKeyCose()))
-						.signatureCount(c.getSignatureCount())
-						.build());
+				.map(this::toRegistered);
 	}
 
 	@Override
 	public Set<RegisteredCredential> lookupAll(ByteArray credentialId) {
 		return webAuthnCredentialRepo
 				.findByCredentialId(credentialId.getBytes())
-				.map(c -> Set.of(RegisteredCredential.builder()
-						.credentialId(new ByteArray(c.getCredentialId()))
-						.userHandle(new ByteArray(c.getUserHandle()))
-						.publicKeyCose(new ByteArray(c.getPublicKeyCose()))
-						.signatureCount(c.getSignatureCount())
-						.build()))
+				.map(c -> Set.of(toRegistered(c)))
 				.orElse(Set.of());
 	}
+
+	// counters still waiting in the write-behind buffer are newer than the stored ones
+	private RegisteredCredential toRegistered(WebAuthnCredential c) {
+		return RegisteredCredential.builder()
+				.credentialId(new ByteArray(c.getCredentialId()))
+				.userHandle(new ByteArray(c.getUserHandle()))
+				.publicKeyCose(new ByteArray(c.getPublicKeyCose()))
+				.signatureCount(signatureCountWriter.pending(c.getCredentialId(), c.getSignatureCount()))
+				.build();
+	}
 }
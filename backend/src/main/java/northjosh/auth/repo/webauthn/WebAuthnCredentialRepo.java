@@ -1,12 +1,28 @@
 package northjosh.auth.repo.webauthn;
 
+import jakarta.transaction.Transactional;
 import java.util.List;
 import java.util.Optional;
 import northjosh.auth.repo.user.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 
 public interface WebAuthnCredentialRepo extends JpaRepository<WebAuthnCredential, Long> {
 	Optional<WebAuthnCredential> findByCredentialId(byte[] credentialId);
 
 	List<WebAuthnCredential> findAllByUser(User user);
+
+	/** Resolves the owner through the unique index on {@code credential_id}. */
+	@Query("select c.user.email from WebAuthnCredential c where c.credentialId = :credentialId")
+	Optional<String> findEmailByCredentialId(byte[] credentialId);
+
+	@Query("select new northjosh.auth.repo.webauthn.CredentialListing(c.id, c.credentialId, c.signatureCount)"
+			+ " from WebAuthnCredential c where c.user.email = :email")
+	List<CredentialListing> findListingsByEmail(String email);
+
+	@Modifying
+	@Transactional
+	@Query("delete from WebAuthnCredential c where c.id = :id and c.user.id = :userId")
+	int deleteOwned(Long id, Long userId);
 }
@@ -6,7 +6,9 @@ import java.util.UUID;
 import lombok.Data;
 
 @Entity
-@Table(name = "registration_challenges")
+@Table(
+		name = "registration_challenges",
+		indexes = @Index(name = "idx_registration_challenges_expires", columnList = "expiresAt"))
 @Data
 public class WebAuthnChallenge {
 
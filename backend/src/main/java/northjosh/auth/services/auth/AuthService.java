@@ -3,46 +3,48 @@ package northjosh.auth.services.auth;
 import northjosh.auth.dto.AuthResponse;
 import northjosh.auth.dto.LoginDto;
 import northjosh.auth.dto.SignUpDto;
+import northjosh.auth.dto.mapper.UserMapper;
 import northjosh.auth.exceptions.WebAuthnException;
 import northjosh.auth.repo.user.User;
 import northjosh.auth.repo.user.UserRepo;
 import northjosh.auth.services.jwt.JwtService;
 import northjosh.auth.services.totp.TotpService;
 import northjosh.auth.services.user.UserService;
-import org.modelmapper.ModelMapper;
-import org.springframework.security.crypto.password.PasswordEncoder;
+import northjosh.auth.services.user.UserSnapshot;
 import org.springframework.stereotype.Service;
 
 @Service
 public class AuthService {
 
 	final UserRepo userRepo;
-	final ModelMapper modelMapper;
-	private final PasswordEncoder passwordEncoder;
+	final UserMapper userMapper;
+	private final PasswordHashingExecutor passwordHasher;
 	private final JwtService jwtService;
 	private final TotpService totpService;
 	private final UserService userService;
+	private final RefreshTokenService refreshTokenService;
 
 	public AuthService(
 			UserRepo userRepo,
-			ModelMapper modelMapper,
-			PasswordEncoder passwordEncoder,
+			UserMapper userMapper,
+			PasswordHashingExecutor passwordHasher,
 			JwtService jwtService,
 			TotpService totpService,
-			UserService userService) {
+			UserService userService,
+			RefreshTokenService refreshTokenService) {
 		this.userRepo = userRepo;
-		this.modelMapper = modelMapper;
-		this.passwordEncoder = passwordEncoder;
+		this.userMapper = userMapper;
+		this.passwordHasher = passwordHasher;
 		this.jwtService = jwtService;
 		this.totpService = totpService;
 		this.userService = userService;
+		this.refreshTokenService = refreshTokenService;
 	}
 
 	public User signup(SignUpDto dto) {
 
-		User newUser = new User();
-		modelMapper.map(dto, newUser);
-		newUser.setPassword(passwordEncoder.encode(dto.getPassword()));
+		User newUser = userMapper.toUser(dto);
+		newUser.setPassword(passwordHasher.encode(dto.getPassword()));
 
 		if (newUser.isTotpEnabled()) {
 			newUser.setTotpSecret(totpService.generateSecret());
@@ -52,17 +54,24 @@ public class AuthService {
 	}
 
 	public AuthResponse login(LoginDto dto) {
-		User user = userService.get(dto.getEmail());
+		UserSnapshot user = userService.snapshot(dto.getEmail());
 
-		if (!passwordEncoder.matches(dto.getPassword(), user.getPassword())) {
+		if (!passwordHasher.matches(dto.getPassword(), user.getPassword())) {
 			throw new WebAuthnException("Invalid Credentials");
 		}
+
+		if (passwordHasher.needsRehash(user.getPassword())) {
+			passwordHasher.encodeLater(dto.getPassword(), replacement -> {
+				userRepo.replacePassword(user.getId(), user.getPassword(), replacement);
+				userService.evict(user.getEmail());
+			});
+		}
 		if (user.isTotpEnabled()) {
 			String pendingToken = jwtService.generatePendingToken(user.getEmail());
 			return new AuthResponse(pendingToken, true);
 		} else {
 			String accessToken = jwtService.generateAccessToken(user.getEmail());
-			return new AuthResponse(accessToken, false);
+			return new AuthResponse(accessToken, false, refreshTokenService.issue(user.getEmail()));
 		}
 	}
 }
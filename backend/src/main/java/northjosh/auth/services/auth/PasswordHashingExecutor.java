@@ -0,0 +1,127 @@
+package northjosh.auth.services.auth;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import lombok.extern.slf4j.Slf4j;
+import northjosh.auth.exceptions.ServiceBusyException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+/**
+ * Runs password hashing and verification on a small pool sized to the CPU count, so a burst of
+ * logins cannot occupy every request thread with hashing. Work beyond the bounded queue is refused
+ * immediately with {@link ServiceBusyException}, which is answered with a 503.
+ */
+@Slf4j
+@Component
+public class PasswordHashingExecutor {
+
+	private final PasswordEncoder passwordEncoder;
+	private final ThreadPoolExecutor executor;
+	private final Timer waitTimer;
+	private final Counter rejected;
+
+	public PasswordHashingExecutor(
+			PasswordEncoder passwordEncoder,
+			MeterRegistry meterRegistry,
+			@Value("${auth.password.pool-size:0}") int poolSize,
+			@Value("${auth.password.queue-capacity:64}") int queueCapacity) {
+		this.passwordEncoder = passwordEncoder;
+
+		int threads = poolSize > 0 ? poolSize : Runtime.getRuntime().availableProcessors();
+		this.executor = new ThreadPoolExecutor(
+				threads,
+				threads,
+				0,
+				TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<>(queueCapacity),
+				new CustomizableThreadFactory("password-hash-"),
+				new ThreadPoolExecutor.AbortPolicy());
+
+		this.waitTimer = Timer.builder("auth.password.queue.wait")
+				.publishPercentiles(0.5, 0.99)
+				.register(meterRegistry);
+		this.rejected = meterRegistry.counter("auth.password.rejected");
+		Gauge.builder("auth.password.queue.depth", executor, e -> e.getQueue().size())
+				.register(meterRegistry);
+		Gauge.builder("auth.password.active", executor, ThreadPoolExecutor::getActiveCount)
+				.register(meterRegistry);
+	}
+
+	public boolean matches(CharSequence rawPassword, String encodedPassword) {
+		return run(() -> passwordEncoder.matches(rawPassword, encodedPassword));
+	}
+
+	public String encode(CharSequence rawPassword) {
+		return run(() -> passwordEncoder.encode(rawPassword));
+	}
+
+	/** Whether a stored hash uses an older algorithm or a lower cost than new hashes would. */
+	public boolean needsRehash(String encodedPassword) {
+		return passwordEncoder.upgradeEncoding(encodedPassword);
+	}
+
+	/**
+	 * Hashes in the background and hands the result to {@code onEncoded} on the pool thread. Skipped
+	 * when the pool is full, since nothing is waiting on it.
+	 */
+	public void encodeLater(CharSequence rawPassword, Consumer<String> onEncoded) {
+		try {
+			executor.execute(() -> {
+				try {
+					onEncoded.accept(passwordEncoder.encode(rawPassword));
+				} catch (RuntimeException e) {
+					log.warn("Background password rehash failed: {}", e.getMessage());
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			rejected.increment();
+		}
+	}
+
+	private <T> T run(Callable<T> task) {
+		long queuedAt = System.nanoTime();
+		Future<T> future;
+
+		try {
+			future = executor.submit(() -> {
+				waitTimer.record(System.nanoTime() - queuedAt, TimeUnit.NANOSECONDS);
+				return task.call();
+			});
+		} catch (RejectedExecutionException e) {
+			rejected.increment();
+			throw new ServiceBusyException("Too many sign-in attempts, please retry shortly");
+		}
+
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			future.cancel(true);
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while hashing password", e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException runtime) {
+				throw runtime;
+			}
+			throw new IllegalStateException(e.getCause());
+		}
+	}
+
+	@PreDestroy
+	public void shutdown() {
+		executor.shutdown();
+	}
+}
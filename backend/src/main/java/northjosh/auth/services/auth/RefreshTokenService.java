@@ -0,0 +1,113 @@
+package northjosh.auth.services.auth;
+
+import io.jsonwebtoken.JwtException;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+import lombok.extern.slf4j.Slf4j;
+import northjosh.auth.dto.AuthResponse;
+import northjosh.auth.dto.PageCursor;
+import northjosh.auth.exceptions.WebAuthnException;
+import northjosh.auth.repo.refresh.RefreshTokenFamily;
+import northjosh.auth.repo.refresh.RefreshTokenFamilyRepo;
+import northjosh.auth.services.jwt.JwtService;
+import northjosh.auth.services.jwt.TokenClaims;
+import northjosh.auth.services.jwt.TokenType;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * Rotating refresh tokens. Every refresh replaces the family's current token id with a new one in
+ * a single conditional UPDATE; a token that loses that race, or is replayed later, revokes the
+ * whole family. The revocation is committed even though the refresh itself then fails, which is
+ * why this service does not wrap its calls in one transaction.
+ */
+@Slf4j
+@Service
+public class RefreshTokenService {
+
+	private final RefreshTokenFamilyRepo familyRepo;
+	private final JwtService jwtService;
+
+	public RefreshTokenService(RefreshTokenFamilyRepo familyRepo, JwtService jwtService) {
+		this.familyRepo = familyRepo;
+		this.jwtService = jwtService;
+	}
+
+	/** Starts a new token family for a freshly authenticated user. */
+	public String issue(String email) {
+		RefreshTokenFamily family = new RefreshTokenFamily();
+		family.setId(UUID.randomUUID().toString());
+		family.setEmail(email);
+		family.setCurrentTokenId(UUID.randomUUID().toString());
+		family.setExpiresAt(Instant.now().plus(JwtService.REFRESH_TOKEN_LIFETIME));
+		familyRepo.save(family);
+
+		return jwtService.generateRefreshToken(email, family.getId(), family.getCurrentTokenId());
+	}
+
+	public AuthResponse refresh(String refreshToken) {
+		TokenClaims claims = refreshClaims(refreshToken);
+
+		String email = claims.getEmail();
+		String familyId = claims.getFamilyId();
+		String nextTokenId = UUID.randomUUID().toString();
+
+		int rotated = familyRepo.rotate(
+				familyId, claims.getTokenId(), nextTokenId, Instant.now().plus(JwtService.REFRESH_TOKEN_LIFETIME));
+
+		if (rotated == 0) {
+			log.warn("Refresh token replay for {}, revoking family {}", email, familyId);
+			familyRepo.revoke(familyId);
+			throw new WebAuthnException("Invalid Token");
+		}
+
+		return new AuthResponse(
+				jwtService.generateAccessToken(email),
+				false,
+				jwtService.generateRefreshToken(email, familyId, nextTokenId));
+	}
+
+	/**
+	 * Ends the login {@code refreshToken} belongs to, so none of its tokens can be refreshed again.
+	 * The token is the credential: holding it is all it takes to use the login, or to end it.
+	 */
+	public void revokeFamily(String refreshToken) {
+		familyRepo.revoke(refreshClaims(refreshToken).getFamilyId());
+	}
+
+	/**
+	 * A page of the user's logins, newest first, fetching one extra row to show whether more follow.
+	 * Families are deleted when they expire, so the history reaches back one refresh token lifetime.
+	 */
+	public List<RefreshTokenFamily> history(String email, PageCursor before, int size) {
+		Limit limit = Limit.of(size + 1);
+
+		return before == null
+				? familyRepo.findHistory(email, limit)
+				: familyRepo.findHistoryBefore(email, before.getCreatedAt(), before.getId(), limit);
+	}
+
+	// through parse, like every other token, so a refresh token revoked by jti is refused too
+	private TokenClaims refreshClaims(String refreshToken) {
+		TokenClaims claims;
+
+		try {
+			claims = jwtService.parse(refreshToken);
+		} catch (JwtException | IllegalArgumentException e) {
+			throw new WebAuthnException("Invalid Token");
+		}
+
+		if (!claims.is(TokenType.REFRESH) || claims.getFamilyId() == null) {
+			throw new WebAuthnException("Invalid Token");
+		}
+
+		return claims;
+	}
+
+	@Scheduled(fixedRate = 60 * 60 * 1000)
+	public void deleteExpiredFamilies() {
+		familyRepo.deleteExpired(Instant.now());
+	}
+}
@@ -0,0 +1,25 @@
+package northjosh.auth.services.events;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/** Single-node bus: events are handed straight to this JVM's subscribers. */
+@Component
+@ConditionalOnProperty(name = "push.events.bus", havingValue = "local", matchIfMissing = true)
+public class LocalPushEventBus implements PushEventBus {
+
+	private final List<Consumer<PushEvent>> subscribers = new CopyOnWriteArrayList<>();
+
+	@Override
+	public void publish(PushEvent event) {
+		subscribers.forEach(subscriber -> subscriber.accept(event));
+	}
+
+	@Override
+	public void subscribe(Consumer<PushEvent> subscriber) {
+		subscribers.add(subscriber);
+	}
+}
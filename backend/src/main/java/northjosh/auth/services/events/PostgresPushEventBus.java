@@ -0,0 +1,299 @@
+package northjosh.auth.services.events;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.zaxxer.hikari.HikariConfigMXBean;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import javax.sql.DataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+/**
+ * Cluster-wide bus over Postgres {@code LISTEN/NOTIFY} on the application's own datasource. Each node
+ * keeps one pooled connection listening on {@value #CHANNEL}; published events are queued, and
+ * whatever accumulates within {@code push.events.batch-window} goes out as one NOTIFY per payload
+ * that fits under Postgres' 8000-byte limit. A node receives its own notifications as well, so
+ * delivery takes the same path wherever the SSE connection lives.
+ *
+ * <p>Notifications are handed to subscribers on a dispatch thread of their own, so a slow subscriber
+ * queues them rather than holding up the listener. The listening connection stays checked out for
+ * as long as the node runs, so a Hikari pool is grown by one on startup to keep its configured size
+ * for requests.
+ *
+ * <p>Delivery is at most once. {@code NOTIFY} is not stored anywhere, so whatever is published
+ * cluster-wide while a node's listener is reconnecting never reaches that node; the count of
+ * reconnects is {@code push.events.reconnects}. Attempt streams recover on their next reconnect,
+ * which starts from a fresh snapshot; a login page that misses its grant has to start over once the
+ * attempt expires.
+ *
+ * <p>{@code push.events.latency} is measured from the publishing node's clock, so it includes any
+ * clock skew between nodes.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "push.events.bus", havingValue = "postgres")
+public class PostgresPushEventBus implements PushEventBus {
+
+	static final String CHANNEL = "push_events";
+
+	// leaves headroom under the server's 8000-byte payload limit
+	private static final int MAX_PAYLOAD_BYTES = 7900;
+
+	private final DataSource dataSource;
+	private final JdbcTemplate jdbcTemplate;
+	private final ObjectMapper objectMapper;
+	private final long batchWindow;
+
+	private final List<Consumer<PushEvent>> subscribers = new CopyOnWriteArrayList<>();
+	private final BlockingQueue<PushEvent> outbox;
+	private final ExecutorService threads =
+			Executors.newFixedThreadPool(2, new CustomizableThreadFactory("push-events-"));
+	private final ThreadPoolExecutor dispatcher;
+	private volatile boolean running = true;
+
+	private final Timer latency;
+	private final DistributionSummary batchSize;
+	private final Counter dropped;
+	private final Counter reconnects;
+
+	public PostgresPushEventBus(
+			DataSource dataSource,
+			JdbcTemplate jdbcTemplate,
+			ObjectMapper objectMapper,
+			MeterRegistry meterRegistry,
+			@Value("${push.events.batch-window:5}") long batchWindow,
+			@Value("${push.events.queue-capacity:10000}") int queueCapacity) {
+		this.dataSource = dataSource;
+		this.jdbcTemplate = jdbcTemplate;
+		this.objectMapper = objectMapper;
+		this.batchWindow = batchWindow;
+		this.outbox = new LinkedBlockingQueue<>(queueCapacity);
+
+		// one thread, so subscribers see events in the order they were notified
+		this.dispatcher = new ThreadPoolExecutor(
+				1,
+				1,
+				0,
+				TimeUnit.MILLISECONDS,
+				new LinkedBlockingQueue<>(queueCapacity),
+				new CustomizableThreadFactory("push-dispatch-"));
+
+		this.latency = Timer.builder("push.events.latency")
+				.publishPercentiles(0.5, 0.95, 0.99)
+				.register(meterRegistry);
+		this.batchSize = DistributionSummary.builder("push.events.batch-size").register(meterRegistry);
+		this.dropped = meterRegistry.counter("push.events.dropped");
+		this.reconnects = meterRegistry.counter("push.events.reconnects");
+	}
+
+	@PostConstruct
+	public void start() throws SQLException {
+		if (dataSource.isWrapperFor(HikariDataSource.class)) {
+			HikariConfigMXBean pool = dataSource.unwrap(HikariDataSource.class).getHikariConfigMXBean();
+			pool.setMaximumPoolSize(pool.getMaximumPoolSize() + 1);
+		}
+
+		threads.execute(this::listen);
+		threads.execute(this::drainOutbox);
+	}
+
+	@PreDestroy
+	public void stop() {
+		running = false;
+		threads.shutdownNow();
+		dispatcher.shutdownNow();
+	}
+
+	@Override
+	public void publish(PushEvent event) {
+		if (!outbox.offer(event)) {
+			dropped.increment();
+			log.warn("Push event outbox full, dropping {} for {}", event.getName(), event.getChannel());
+		}
+	}
+
+	@Override
+	public void subscribe(Consumer<PushEvent> subscriber) {
+		subscribers.add(subscriber);
+	}
+
+	private void drainOutbox() {
+		while (running) {
+			try {
+				PushEvent first = outbox.poll(1, TimeUnit.SECONDS);
+				if (first == null) {
+					continue;
+				}
+
+				// let a burst accumulate so it shares NOTIFYs
+				Thread.sleep(batchWindow);
+
+				List<PushEvent> batch = new ArrayList<>();
+				batch.add(first);
+				outbox.drainTo(batch);
+				batchSize.record(batch.size());
+
+				notifyBatch(batch);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			} catch (RuntimeException e) {
+				log.warn("Failed to publish push events: {}", e.getMessage());
+			}
+		}
+	}
+
+	private void notifyBatch(List<PushEvent> batch) {
+		StringBuilder payload = new StringBuilder("[");
+		int bytes = 1;
+
+		for (PushEvent event : batch) {
+			String encoded = encode(event);
+			int size = encoded.getBytes(StandardCharsets.UTF_8).length;
+
+			if (size + 2 > MAX_PAYLOAD_BYTES) {
+				dropped.increment();
+				log.warn("Push event {} for {} is too large to publish", event.getName(), event.getChannel());
+				continue;
+			}
+
+			if (bytes + size + 1 > MAX_PAYLOAD_BYTES) {
+				send(payload.append(']').toString());
+				payload.setLength(1);
+				bytes = 1;
+			}
+
+			if (payload.length() > 1) {
+				payload.append(',');
+				bytes++;
+			}
+			payload.append(encoded);
+			bytes += size;
+		}
+
+		if (payload.length() > 1) {
+			send(payload.append(']').toString());
+		}
+	}
+
+	private void send(String payload) {
+		try {
+			jdbcTemplate.query("select pg_notify(?, ?)", rs -> null, CHANNEL, payload);
+		} catch (DataAccessException e) {
+			log.warn("NOTIFY failed, events lost: {}", e.getMessage());
+		}
+	}
+
+	private String encode(PushEvent event) {
+		try {
+			return objectMapper.writeValueAsString(
+					List.of(event.getChannel(), event.getName(), event.getData(), event.getPublishedAt()));
+		} catch (JsonProcessingException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private void listen() {
+		while (running) {
+			try (Connection connection = dataSource.getConnection()) {
+				connection.setAutoCommit(true);
+				try (Statement statement = connection.createStatement()) {
+					statement.execute("LISTEN " + CHANNEL);
+				}
+
+				PGConnection pg = connection.unwrap(PGConnection.class);
+				while (running) {
+					PGNotification[] notifications = pg.getNotifications(500);
+					if (notifications != null) {
+						for (PGNotification notification : notifications) {
+							dispatch(notification.getParameter());
+						}
+					}
+				}
+			} catch (SQLException e) {
+				if (!running) {
+					return;
+				}
+				reconnects.increment();
+				log.warn(
+						"Lost push event listener connection, reconnecting; events until then are lost: {}",
+						e.getMessage());
+				try {
+					Thread.sleep(1000);
+				} catch (InterruptedException interrupted) {
+					Thread.currentThread().interrupt();
+					return;
+				}
+			}
+		}
+	}
+
+	private void dispatch(String payload) {
+		try {
+			dispatcher.execute(() -> receive(payload));
+		} catch (RejectedExecutionException e) {
+			if (running) {
+				dropped.increment();
+				log.warn("Push event dispatch queue full, dropping a notification");
+			}
+		}
+	}
+
+	private void receive(String payload) {
+		JsonNode events;
+		try {
+			events = objectMapper.readTree(payload);
+		} catch (JsonProcessingException e) {
+			log.warn("Ignoring malformed push event payload: {}", e.getMessage());
+			return;
+		}
+
+		long now = System.currentTimeMillis();
+		for (JsonNode node : events) {
+			PushEvent event = new PushEvent(
+					node.get(0).asText(),
+					node.get(1).asText(),
+					node.get(2).asText(),
+					node.get(3).asLong());
+
+			latency.record(Math.max(0, now - event.getPublishedAt()), TimeUnit.MILLISECONDS);
+
+			for (Consumer<PushEvent> subscriber : subscribers) {
+				try {
+					subscriber.accept(event);
+				} catch (RuntimeException e) {
+					log.warn("Push event subscriber failed: {}", e.getMessage());
+				}
+			}
+		}
+	}
+}
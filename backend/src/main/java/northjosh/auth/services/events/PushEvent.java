@@ -0,0 +1,19 @@
+package northjosh.auth.services.events;
+
+import lombok.Value;
+
+/**
+ * An SSE event addressed to a channel, as it travels between nodes. {@code data} is already
+ * serialised, so it is written to the stream unchanged.
+ */
+@Value
+public class PushEvent {
+	String channel;
+	String name;
+	String data;
+	long publishedAt;
+
+	public static PushEvent of(String channel, String name, String data) {
+		return new PushEvent(channel, name, data, System.currentTimeMillis());
+	}
+}
@@ -0,0 +1,14 @@
+package northjosh.auth.services.events;
+
+import java.util.function.Consumer;
+
+/**
+ * Carries push events to whichever node holds the channel's SSE connection. Every subscriber on
+ * every node receives every event, including the publishing node.
+ */
+public interface PushEventBus {
+
+	void publish(PushEvent event);
+
+	void subscribe(Consumer<PushEvent> subscriber);
+}
@@ -0,0 +1,465 @@
+package northjosh.auth.services.jwt;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collection;
+import javax.crypto.Mac;
+
+/**
+ * Fast path for the HMAC tokens we mint ourselves. Tokens are written straight into a per-thread
+ * buffer behind a header that is encoded once per key, and read back with a small scanner over
+ * the fixed, flat claim shape once the MAC has been checked. Neither direction goes through
+ * Jackson or builds claim maps.
+ *
+ * <p>The output is an ordinary JWS that jjwt accepts, and anything the codec does not recognise
+ * (asymmetric keys, foreign headers, unusual payloads, expired tokens) is left to jjwt by
+ * returning {@code null}.
+ */
+public final class CompactTokenCodec {
+
+	private static final byte[] BASE64URL =
+			"ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_".getBytes(StandardCharsets.US_ASCII);
+
+	private static final int[] BASE64URL_INVERSE = new int[128];
+
+	static {
+		Arrays.fill(BASE64URL_INVERSE, -1);
+		for (int i = 0; i < BASE64URL.length; i++) {
+			BASE64URL_INVERSE[BASE64URL[i]] = i;
+		}
+	}
+
+	private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+
+	/** The header an HMAC key's tokens start with, already base64url-encoded. */
+	public static String encodedHeader(String kid, String algorithm) {
+		String json = "{\"kid\":\"" + kid + "\",\"alg\":\"" + algorithm + "\"}";
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(json.getBytes(StandardCharsets.US_ASCII));
+	}
+
+	public String encode(
+			SigningKeyRing.ActiveKey key,
+			TokenType type,
+			String email,
+			String tokenId,
+			String familyId,
+			long issuedAt,
+			long expiresAt) {
+
+		if (!key.getAlgorithm().isHmac()
+				|| email == null
+				|| tokenId == null
+				|| issuedAt < 0
+				|| expiresAt < 0
+				|| !isPlain(email)
+				|| !isPlain(tokenId)
+				|| !isPlain(familyId)) {
+			return null;
+		}
+
+		Scratch scratch = SCRATCH.get();
+
+		int json = 0;
+		byte[] payload = scratch.payload(payloadLength(type, email, tokenId, familyId, issuedAt, expiresAt));
+		json = put(payload, json, "{\"type\":\"");
+		json = put(payload, json, type.getValue());
+		json = put(payload, json, "\",\"email\":\"");
+		json = put(payload, json, email);
+		if (familyId != null) {
+			json = put(payload, json, "\",\"fid\":\"");
+			json = put(payload, json, familyId);
+		}
+		json = put(payload, json, "\",\"jti\":\"");
+		json = put(payload, json, tokenId);
+		json = put(payload, json, "\",\"iat\":");
+		json = putLong(payload, json, issuedAt);
+		json = put(payload, json, ",\"exp\":");
+		json = putLong(payload, json, expiresAt);
+		payload[json++] = '}';
+
+		String header = key.getEncodedHeader();
+		byte[] out = scratch.token(header.length() + 1 + (json * 4 + 2) / 3 + 1 + 88);
+		int length = put(out, 0, header);
+		out[length++] = '.';
+		length = encodeBase64(payload, json, out, length);
+
+		Mac mac = scratch.mac(key);
+		mac.update(out, 0, length);
+		byte[] signature = scratch.signature;
+		int signatureLength;
+		try {
+			signatureLength = mac.getMacLength();
+			mac.doFinal(signature, 0);
+		} catch (GeneralSecurityException e) {
+			return null;
+		}
+
+		out[length++] = '.';
+		length = encodeBase64(signature, signatureLength, out, length);
+
+		return new String(out, 0, length, StandardCharsets.ISO_8859_1);
+	}
+
+	/**
+	 * Verifies and reads a token minted by {@link #encode}, or returns {@code null} if the token
+	 * should go through jjwt instead.
+	 */
+	public TokenClaims decode(String token, Collection<SigningKeyRing.ActiveKey> keys) {
+		SigningKeyRing.ActiveKey key = null;
+		for (SigningKeyRing.ActiveKey candidate : keys) {
+			String header = candidate.getEncodedHeader();
+			if (header != null
+					&& token.startsWith(header)
+					&& token.length() > header.length()
+					&& token.charAt(header.length()) == '.') {
+				key = candidate;
+				break;
+			}
+		}
+
+		if (key == null) {
+			return null;
+		}
+
+		int firstDot = key.getEncodedHeader().length();
+		int secondDot = token.indexOf('.', firstDot + 1);
+		if (secondDot < 0 || token.indexOf('.', secondDot + 1) >= 0) {
+			return null;
+		}
+
+		Scratch scratch = SCRATCH.get();
+		byte[] signed = scratch.token(secondDot);
+		for (int i = 0; i < secondDot; i++) {
+			char c = token.charAt(i);
+			if (c > 0x7f) {
+				return null;
+			}
+			signed[i] = (byte) c;
+		}
+
+		Mac mac = scratch.mac(key);
+		mac.update(signed, 0, secondDot);
+		byte[] expected = scratch.signature;
+		int macLength = mac.getMacLength();
+		try {
+			mac.doFinal(expected, 0);
+		} catch (GeneralSecurityException e) {
+			return null;
+		}
+
+		byte[] presented = scratch.presented;
+		int presentedLength = decodeBase64(token, secondDot + 1, token.length(), presented);
+		if (presentedLength != macLength || !constantTimeEquals(expected, presented, macLength)) {
+			return null;
+		}
+
+		byte[] payload = scratch.payload(secondDot);
+		int payloadLength = decodeBase64(token, firstDot + 1, secondDot, payload);
+		if (payloadLength < 0) {
+			return null;
+		}
+
+		TokenClaims claims = new Scanner(payload, payloadLength).claims();
+		if (claims == null || !claims.getExpiresAt().isAfter(Instant.now())) {
+			return null;
+		}
+
+		return claims;
+	}
+
+	// exactly what encode writes below, so no field can run past the buffer
+	private static int payloadLength(
+			TokenType type, String email, String tokenId, String familyId, long issuedAt, long expiresAt) {
+		int length = "{\"type\":\"".length()
+				+ type.getValue().length()
+				+ "\",\"email\":\"".length()
+				+ email.length()
+				+ "\",\"jti\":\"".length()
+				+ tokenId.length()
+				+ "\",\"iat\":".length()
+				+ digits(issuedAt)
+				+ ",\"exp\":".length()
+				+ digits(expiresAt)
+				+ 1;
+		if (familyId != null) {
+			length += "\",\"fid\":\"".length() + familyId.length();
+		}
+		return length;
+	}
+
+	private static int digits(long value) {
+		int digits = 1;
+		while (value >= 10) {
+			value /= 10;
+			digits++;
+		}
+		return digits;
+	}
+
+	// ASCII without anything that would need escaping inside a JSON string
+	private static boolean isPlain(String value) {
+		if (value == null) {
+			return true;
+		}
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if (c < 0x20 || c > 0x7e || c == '"' || c == '\\') {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static int put(byte[] dst, int offset, String ascii) {
+		for (int i = 0; i < ascii.length(); i++) {
+			dst[offset++] = (byte) ascii.charAt(i);
+		}
+		return offset;
+	}
+
+	private static int putLong(byte[] dst, int offset, long value) {
+		int digits = digits(value);
+		for (int i = offset + digits - 1; i >= offset; i--) {
+			dst[i] = (byte) ('0' + value % 10);
+			value /= 10;
+		}
+		return offset + digits;
+	}
+
+	private static int encodeBase64(byte[] src, int length, byte[] dst, int offset) {
+		int i = 0;
+		for (; i + 2 < length; i += 3) {
+			int bits = (src[i] & 0xff) << 16 | (src[i + 1] & 0xff) << 8 | (src[i + 2] & 0xff);
+			dst[offset++] = BASE64URL[bits >>> 18];
+			dst[offset++] = BASE64URL[(bits >>> 12) & 0x3f];
+			dst[offset++] = BASE64URL[(bits >>> 6) & 0x3f];
+			dst[offset++] = BASE64URL[bits & 0x3f];
+		}
+		if (length - i == 1) {
+			int bits = (src[i] & 0xff) << 16;
+			dst[offset++] = BASE64URL[bits >>> 18];
+			dst[offset++] = BASE64URL[(bits >>> 12) & 0x3f];
+		} else if (length - i == 2) {
+			int bits = (src[i] & 0xff) << 16 | (src[i + 1] & 0xff) << 8;
+			dst[offset++] = BASE64URL[bits >>> 18];
+			dst[offset++] = BASE64URL[(bits >>> 12) & 0x3f];
+			dst[offset++] = BASE64URL[(bits >>> 6) & 0x3f];
+		}
+		return offset;
+	}
+
+	/** Returns the decoded length, or -1 if the range is not unpadded base64url or overflows dst. */
+	private static int decodeBase64(String src, int from, int to, byte[] dst) {
+		int length = 0;
+		int bits = 0;
+		int count = 0;
+		for (int i = from; i < to; i++) {
+			char c = src.charAt(i);
+			int value = c < 128 ? BASE64URL_INVERSE[c] : -1;
+			if (value < 0) {
+				return -1;
+			}
+			bits = bits << 6 | value;
+			if (++count == 4) {
+				if (length + 3 > dst.length) {
+					return -1;
+				}
+				dst[length++] = (byte) (bits >>> 16);
+				dst[length++] = (byte) (bits >>> 8);
+				dst[length++] = (byte) bits;
+				bits = 0;
+				count = 0;
+			}
+		}
+		if (count == 1 || length + count > dst.length) {
+			return -1;
+		}
+		if (count == 2) {
+			dst[length++] = (byte) (bits >>> 4);
+		} else if (count == 3) {
+			dst[length++] = (byte) (bits >>> 10);
+			dst[length++] = (byte) (bits >>> 2);
+		}
+		return length;
+	}
+
+	private static boolean constantTimeEquals(byte[] a, byte[] b, int length) {
+		int diff = 0;
+		for (int i = 0; i < length; i++) {
+			diff |= a[i] ^ b[i];
+		}
+		return diff == 0;
+	}
+
+	/** Reads a flat JSON object of unescaped strings and non-negative integers. */
+	private static final class Scanner {
+		private final byte[] json;
+		private final int length;
+		private int position;
+
+		private Scanner(byte[] json, int length) {
+			this.json = json;
+			this.length = length;
+		}
+
+		TokenClaims claims() {
+			TokenType type = null;
+			String email = null;
+			String tokenId = null;
+			String familyId = null;
+			long expiresAt = -1;
+
+			if (!consume('{')) {
+				return null;
+			}
+
+			while (position < length && json[position] != '}') {
+				int keyStart = position + 1;
+				int keyEnd = string();
+				if (keyEnd < 0 || !consume(':')) {
+					return null;
+				}
+
+				if (position < length && json[position] == '"') {
+					int valueStart = position + 1;
+					int valueEnd = string();
+					if (valueEnd < 0) {
+						return null;
+					}
+					if (is(keyStart, keyEnd, "type")) {
+						type = type(valueStart, valueEnd);
+						if (type == null) {
+							return null;
+						}
+					} else if (is(keyStart, keyEnd, "email")) {
+						email = new String(json, valueStart, valueEnd - valueStart, StandardCharsets.UTF_8);
+					} else if (is(keyStart, keyEnd, "jti")) {
+						tokenId = new String(json, valueStart, valueEnd - valueStart, StandardCharsets.UTF_8);
+					} else if (is(keyStart, keyEnd, "fid")) {
+						familyId = new String(json, valueStart, valueEnd - valueStart, StandardCharsets.UTF_8);
+					}
+				} else {
+					long number = number();
+					if (number < 0) {
+						return null;
+					}
+					if (is(keyStart, keyEnd, "exp")) {
+						expiresAt = number;
+					}
+				}
+
+				if (position < length && json[position] == ',') {
+					position++;
+				}
+			}
+
+			if (!consume('}') || position != length || type == null || email == null || expiresAt < 0) {
+				return null;
+			}
+
+			return new TokenClaims(type, email, Instant.ofEpochSecond(expiresAt), tokenId, familyId);
+		}
+
+		private boolean consume(char expected) {
+			if (position < length && json[position] == expected) {
+				position++;
+				return true;
+			}
+			return false;
+		}
+
+		// returns the index of the closing quote, leaving position just after it
+		private int string() {
+			if (!consume('"')) {
+				return -1;
+			}
+			while (position < length && json[position] != '"') {
+				if (json[position] == '\\') {
+					return -1;
+				}
+				position++;
+			}
+			if (position >= length) {
+				return -1;
+			}
+			int end = position;
+			position++;
+			return end;
+		}
+
+		private long number() {
+			long value = 0;
+			int start = position;
+			while (position < length && json[position] >= '0' && json[position] <= '9') {
+				value = value * 10 + (json[position] - '0');
+				position++;
+			}
+			return position == start || position - start > 18 ? -1 : value;
+		}
+
+		private boolean is(int start, int end, String key) {
+			if (end - start != key.length()) {
+				return false;
+			}
+			for (int i = 0; i < key.length(); i++) {
+				if (json[start + i] != key.charAt(i)) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		private TokenType type(int start, int end) {
+			for (TokenType type : TokenType.values()) {
+				if (is(start, end, type.getValue())) {
+					return type;
+				}
+			}
+			return null;
+		}
+	}
+
+	private static final class Scratch {
+		private byte[] payload = new byte[512];
+		private byte[] token = new byte[1024];
+		private final byte[] signature = new byte[64];
+		private final byte[] presented = new byte[64];
+		private Mac mac;
+		private Key macKey;
+
+		byte[] payload(int capacity) {
+			if (payload.length < capacity) {
+				payload = new byte[capacity];
+			}
+			return payload;
+		}
+
+		byte[] token(int capacity) {
+			if (token.length < capacity) {
+				token = new byte[capacity];
+			}
+			return token;
+		}
+
+		Mac mac(SigningKeyRing.ActiveKey key) {
+			// keyed on the key itself, not its kid, so a reused kid never signs with a stale secret
+			if (key.getSigningKey() != macKey) {
+				try {
+					String algorithm = key.getSigningKey().getAlgorithm();
+					if (mac == null || !mac.getAlgorithm().equals(algorithm)) {
+						mac = Mac.getInstance(algorithm);
+					}
+					mac.init(key.getSigningKey());
+					macKey = key.getSigningKey();
+				} catch (GeneralSecurityException e) {
+					throw new IllegalStateException("Unusable signing key " + key.getKid(), e);
+				}
+			}
+			return mac;
+		}
+	}
+}
@@ -0,0 +1,52 @@
+package northjosh.auth.services.jwt;
+
+import java.math.BigInteger;
+import java.security.interfaces.ECPublicKey;
+import java.security.interfaces.RSAPublicKey;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+final class JsonWebKeys {
+
+	private JsonWebKeys() {}
+
+	static Map<String, Object> toJwk(SigningKeyRing.ActiveKey key) {
+		Map<String, Object> jwk = new LinkedHashMap<>();
+		jwk.put("kid", key.getKid());
+		jwk.put("use", "sig");
+		jwk.put("alg", key.getAlgorithm().getValue());
+
+		if (key.getVerificationKey() instanceof ECPublicKey ec) {
+			int size = (ec.getParams().getCurve().getField().getFieldSize() + 7) / 8;
+			jwk.put("kty", "EC");
+			jwk.put("crv", "P-" + ec.getParams().getCurve().getField().getFieldSize());
+			jwk.put("x", encode(ec.getW().getAffineX(), size));
+			jwk.put("y", encode(ec.getW().getAffineY(), size));
+		} else if (key.getVerificationKey() instanceof RSAPublicKey rsa) {
+			jwk.put("kty", "RSA");
+			jwk.put("n", encode(rsa.getModulus(), (rsa.getModulus().bitLength() + 7) / 8));
+			jwk.put(
+					"e",
+					encode(rsa.getPublicExponent(), (rsa.getPublicExponent().bitLength() + 7) / 8));
+		} else {
+			throw new IllegalArgumentException("Not a public key: " + key.getKid());
+		}
+
+		return jwk;
+	}
+
+	// unsigned big-endian, left-padded to the field size as RFC 7518 requires
+	private static String encode(BigInteger value, int length) {
+		byte[] bytes = value.toByteArray();
+		byte[] padded = new byte[length];
+
+		if (bytes.length > length) {
+			bytes = Arrays.copyOfRange(bytes, bytes.length - length, bytes.length);
+		}
+
+		System.arraycopy(bytes, 0, padded, length - bytes.length, bytes.length);
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(padded);
+	}
+}
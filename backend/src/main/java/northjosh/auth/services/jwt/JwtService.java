@@ -2,84 +2,178 @@ package northjosh.auth.services.jwt;
 
 import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.Jws;
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
-import io.jsonwebtoken.SignatureAlgorithm;
-import io.jsonwebtoken.security.Keys;
+import io.jsonwebtoken.SigningKeyResolverAdapter;
 import java.security.Key;
+import java.security.PublicKey;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.Map;
+import java.util.UUID;
+import northjosh.auth.dto.response.JsonWebKeySet;
 import northjosh.auth.exceptions.WebAuthnException;
+import northjosh.auth.services.revocation.TokenRevocationService;
 import org.springframework.stereotype.Service;
 
 @Service
 public class JwtService {
 
-	private final Key key = Keys.secretKeyFor(SignatureAlgorithm.HS256);
+	public static final Duration ACCESS_TOKEN_LIFETIME = Duration.ofHours(1);
+	public static final Duration VERIFICATION_TOKEN_LIFETIME = Duration.ofHours(1);
+	public static final Duration PENDING_TOKEN_LIFETIME = Duration.ofMinutes(5);
+	public static final Duration REFRESH_TOKEN_LIFETIME = Duration.ofDays(7);
+	public static final Duration PUSH_GRANT_LIFETIME = Duration.ofMinutes(1);
+
+	private final CompactTokenCodec codec = new CompactTokenCodec();
+
+	private final SigningKeyRing keyRing;
+
+	// parsers are immutable and thread-safe once built, so one instance serves every request
+	private final JwtParser parser;
+
+	private final VerifiedTokenCache tokenCache;
+
+	private final TokenRevocationService revocationService;
+
+	public JwtService(SigningKeyRing keyRing, VerifiedTokenCache tokenCache, TokenRevocationService revocationService) {
+		this.keyRing = keyRing;
+		this.tokenCache = tokenCache;
+		this.revocationService = revocationService;
+		keyRing.onKeyRemoved(tokenCache::invalidateAll);
+		this.parser = Jwts.parserBuilder()
+				.setSigningKeyResolver(new SigningKeyResolverAdapter() {
+					@Override
+					public Key resolveSigningKey(JwsHeader header, Claims claims) {
+						SigningKeyRing.ActiveKey key = keyRing.find(header.getKeyId());
+						if (key == null || !key.getAlgorithm().getValue().equals(header.getAlgorithm())) {
+							throw new JwtException("Unknown signing key");
+						}
+						return key.getVerificationKey();
+					}
+				})
+				.build();
+	}
 
 	public String generateAccessToken(String username) {
-		long expiration = 60 * 60 * 1000;
-
-		return Jwts.builder()
-				.setSubject(username)
-				.setIssuer("northjosh")
-				.setClaims(Map.of("type", "access", "email", username))
-				.setIssuedAt(new Date())
-				.setExpiration(new Date(System.currentTimeMillis() + expiration))
-				.signWith(key)
-				.compact();
+		return mint(TokenType.ACCESS, username, UUID.randomUUID().toString(), null, ACCESS_TOKEN_LIFETIME);
 	}
 
 	public String generateVerificationToken(String username) {
-		long expiration = 60 * 60 * 1000; // 1 hour minutes
-
-		return Jwts.builder()
-				.setSubject(username)
-				.setClaims(Map.of("type", "verification", "email", username))
-				.setIssuedAt(new Date())
-				.setExpiration(new Date(System.currentTimeMillis() + expiration))
-				.signWith(key)
-				.compact();
+		return mint(TokenType.VERIFICATION, username, UUID.randomUUID().toString(), null, VERIFICATION_TOKEN_LIFETIME);
 	}
 
-	public String generateRefreshToken(String username) {
-		long expiration = 7 * 24 * 60 * 60 * 1000; // 7 days in milliseconds
+	public String generateRefreshToken(String username, String familyId, String tokenId) {
+		return mint(TokenType.REFRESH, username, tokenId, familyId, REFRESH_TOKEN_LIFETIME);
+	}
 
-		return Jwts.builder()
-				.setSubject(username)
-				.setClaims(Map.of("type", "refresh", "email", username))
-				.setIssuedAt(new Date())
-				.setExpiration(new Date(System.currentTimeMillis() + expiration))
-				.signWith(key)
-				.compact();
+	/**
+	 * A single-use grant for an approved push login. It carries no authority of its own: the browser
+	 * that started the login exchanges it for real tokens, proving itself with the key whose hash is
+	 * the grant's {@code jti}.
+	 */
+	public String generatePushGrant(String username, String keyHash) {
+		return mint(TokenType.PUSH_GRANT, username, keyHash, null, PUSH_GRANT_LIFETIME);
 	}
 
 	public boolean isRefreshToken(String token) {
-		return "refresh".equals(validate(token).getBody().get("type"));
+		return parse(token).is(TokenType.REFRESH);
 	}
 
 	public String generatePendingToken(String username) {
-		long expiration = 5 * 60 * 1000;
+		return mint(TokenType.PENDING, username, UUID.randomUUID().toString(), null, PENDING_TOKEN_LIFETIME);
+	}
+
+	private String mint(TokenType type, String username, String tokenId, String familyId, Duration lifetime) {
+		SigningKeyRing.ActiveKey signingKey = keyRing.current();
+		long issuedAt = Instant.now().getEpochSecond();
+		long expiresAt = issuedAt + lifetime.toSeconds();
+
+		String token = codec.encode(signingKey, type, username, tokenId, familyId, issuedAt, expiresAt);
+		if (token != null) {
+			return token;
+		}
+
+		Map<String, Object> claims = new HashMap<>();
+		claims.put("type", type.getValue());
+		claims.put("email", username);
+		if (familyId != null) {
+			claims.put("fid", familyId);
+		}
 
 		return Jwts.builder()
-				.setSubject(username)
-				.setClaims(Map.of("type", "pending", "email", username))
-				.setIssuedAt(new Date())
-				.setExpiration(new Date(System.currentTimeMillis() + expiration))
-				.signWith(key)
+				.setHeaderParam(JwsHeader.KEY_ID, signingKey.getKid())
+				.setClaims(claims)
+				.setId(tokenId)
+				.setIssuedAt(new Date(issuedAt * 1000))
+				.setExpiration(new Date(expiresAt * 1000))
+				.signWith(signingKey.getSigningKey(), signingKey.getAlgorithm())
 				.compact();
 	}
 
+	/** Public verification keys of every live asymmetric signing key, as a JWK Set. */
+	public JsonWebKeySet getJsonWebKeySet() {
+		return new JsonWebKeySet(keyRing.all().stream()
+				.filter(key -> key.getVerificationKey() instanceof PublicKey)
+				.map(JsonWebKeys::toJwk)
+				.toList());
+	}
+
 	public Jws<Claims> validate(String token) {
-		return Jwts.parserBuilder().setSigningKey(key).build().parseClaimsJws(token);
+		return parser.parseClaimsJws(token);
+	}
+
+	/**
+	 * Verifies the token once and returns its claims. Prefer this over calling several of the
+	 * {@code is*Token}/{@link #getUsername} helpers on the same token. Tokens seen before are served
+	 * from {@link VerifiedTokenCache} without re-checking the signature. Revocation is checked on every
+	 * call, cached or not.
+	 */
+	public TokenClaims parse(String token) {
+		TokenClaims claims = tokenCache.get(token, this::verify);
+
+		if (revocationService.isRevoked(claims.getTokenId())) {
+			throw new JwtException("Token has been revoked");
+		}
+
+		return claims;
+	}
+
+	public void revoke(TokenClaims claims) {
+		revocationService.revoke(claims.getTokenId(), claims.getExpiresAt());
+	}
+
+	/** Revokes a single-use token, returning false if it had already been revoked, here or on another node. */
+	public boolean consume(TokenClaims claims) {
+		return revocationService.revokeOnce(claims.getTokenId(), claims.getExpiresAt());
+	}
+
+	private TokenClaims verify(String token) {
+		TokenClaims decoded = codec.decode(token, keyRing.all());
+		if (decoded != null) {
+			return decoded;
+		}
+
+		Claims claims = validate(token).getBody();
+		return new TokenClaims(
+				TokenType.from(claims.get("type", String.class)),
+				claims.get("email", String.class),
+				claims.getExpiration().toInstant(),
+				claims.getId(),
+				claims.get("fid", String.class));
 	}
 
 	public String getUsername(String token) {
-		return validate(token).getBody().get("email").toString();
+		return parse(token).getEmail();
 	}
 
 	public boolean isTokenValid(String token) {
 		try {
-			validate(token);
+			parse(token);
 			return true;
 		} catch (Exception e) {
 			throw new WebAuthnException(e.getMessage());
@@ -87,10 +181,10 @@ public class JwtService {
 	}
 
 	public boolean isPendingToken(String token) {
-		return "pending".equals(validate(token).getBody().get("type"));
+		return parse(token).isPending();
 	}
 
 	public boolean isVerificationToken(String token) {
-		return "verification".equals(validate(token).getBody().get("type"));
+		return parse(token).is(TokenType.VERIFICATION);
 	}
 }
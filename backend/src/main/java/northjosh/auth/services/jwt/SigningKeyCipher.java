@@ -0,0 +1,86 @@
+package northjosh.auth.services.jwt;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Base64;
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import northjosh.auth.repo.jwt.SigningKey;
+
+/**
+ * Wraps signing key secrets with {@code jwt.keys.encryption-key}, a base64 AES key, before they are
+ * stored. Each secret is sealed with AES-GCM under a fresh IV, with its kid as associated data so a
+ * sealed secret cannot be moved to another row; the column holds the IV followed by the ciphertext.
+ * Without an encryption key secrets are stored as they are.
+ */
+final class SigningKeyCipher {
+
+	private static final String TRANSFORMATION = "AES/GCM/NoPadding";
+	private static final int IV_BYTES = 12;
+	private static final int TAG_BITS = 128;
+
+	private final SecretKey kek;
+	private final SecureRandom random = new SecureRandom();
+
+	SigningKeyCipher(String encryptionKey) {
+		this.kek = encryptionKey == null || encryptionKey.isBlank()
+				? null
+				: new SecretKeySpec(Base64.getDecoder().decode(encryptionKey.trim()), "AES");
+	}
+
+	boolean isEnabled() {
+		return kek != null;
+	}
+
+	/** Stores {@code secret} on the row, sealed if an encryption key is configured. */
+	void seal(SigningKey signingKey, byte[] secret) {
+		if (kek == null) {
+			signingKey.setSecret(secret);
+			signingKey.setEncrypted(false);
+			return;
+		}
+
+		byte[] iv = new byte[IV_BYTES];
+		random.nextBytes(iv);
+
+		try {
+			Cipher cipher = cipher(Cipher.ENCRYPT_MODE, iv, signingKey.getKid());
+			byte[] sealed = Arrays.copyOf(iv, IV_BYTES + cipher.getOutputSize(secret.length));
+			cipher.doFinal(secret, 0, secret.length, sealed, IV_BYTES);
+			signingKey.setSecret(sealed);
+			signingKey.setEncrypted(true);
+		} catch (GeneralSecurityException e) {
+			throw new IllegalStateException("Could not encrypt signing key " + signingKey.getKid(), e);
+		}
+	}
+
+	/** The row's secret in the clear. */
+	byte[] open(SigningKey signingKey) {
+		if (!Boolean.TRUE.equals(signingKey.getEncrypted())) {
+			return signingKey.getSecret();
+		}
+		if (kek == null) {
+			throw new IllegalStateException(
+					"Signing key " + signingKey.getKid() + " is encrypted but jwt.keys.encryption-key is not set");
+		}
+
+		byte[] sealed = signingKey.getSecret();
+		try {
+			return cipher(Cipher.DECRYPT_MODE, Arrays.copyOf(sealed, IV_BYTES), signingKey.getKid())
+					.doFinal(sealed, IV_BYTES, sealed.length - IV_BYTES);
+		} catch (GeneralSecurityException e) {
+			throw new IllegalStateException("Could not decrypt signing key " + signingKey.getKid(), e);
+		}
+	}
+
+	private Cipher cipher(int mode, byte[] iv, String kid) throws GeneralSecurityException {
+		Cipher cipher = Cipher.getInstance(TRANSFORMATION);
+		cipher.init(mode, kek, new GCMParameterSpec(TAG_BITS, iv));
+		cipher.updateAAD(kid.getBytes(StandardCharsets.UTF_8));
+		return cipher;
+	}
+}
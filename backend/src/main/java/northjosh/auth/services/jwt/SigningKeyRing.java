@@ -0,0 +1,254 @@
+package northjosh.auth.services.jwt;
+
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.security.KeyFactory;
+import java.security.KeyPair;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.security.spec.X509EncodedKeySpec;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import northjosh.auth.repo.jwt.SigningKey;
+import northjosh.auth.repo.jwt.SigningKeyRepo;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Signing keys shared by every node through the {@code signing_keys} table. Tokens name their key
+ * in the {@code kid} header, and verification resolves it from an in-memory index that is
+ * refreshed from the database periodically. A key stops signing after the rotation interval but
+ * keeps verifying until the longest-lived token it could have signed has expired.
+ *
+ * <p>Every node runs the rotation, but a new key takes the next {@code generation} after the newest
+ * one the node has loaded, and that column is unique: nodes rotating from the same view race for
+ * one insert, and the losers load the winner's key instead of activating their own.
+ *
+ * <p>New keys use {@code jwt.keys.algorithm}. With an asymmetric algorithm such as ES256 the public
+ * halves are published as a JWKS so other services can verify our tokens themselves. A successor is
+ * therefore inserted {@code jwt.keys.publish-ahead} (by default {@code jwt.jwks.max-age}) plus one
+ * refresh interval before it starts signing: by then every node has loaded it and every JWKS cache
+ * has expired at least once since it appeared. Only the very first key, and one minted after the
+ * previous key has already lapsed, signs straight away.
+ *
+ * <p>Secrets are sealed with {@code jwt.keys.encryption-key} when it is set (see {@link
+ * SigningKeyCipher}). Without it they are stored in plaintext, leaving {@code signing_keys} as
+ * sensitive as the tokens it can mint; a warning is logged at startup.
+ */
+@Slf4j
+@Component
+public class SigningKeyRing {
+
+	// refresh tokens are the longest-lived tokens we mint
+	static final Duration MAX_TOKEN_LIFETIME = JwtService.REFRESH_TOKEN_LIFETIME;
+
+	// a token with an unknown kid triggers at most one reload per interval
+	private static final Duration MISS_RELOAD_INTERVAL = Duration.ofSeconds(5);
+
+	private final SigningKeyRepo signingKeyRepo;
+	private final Duration rotationInterval;
+	private final Duration refreshInterval;
+	private final Duration publishAhead;
+	private final SignatureAlgorithm algorithm;
+	private final SigningKeyCipher cipher;
+
+	private final List<Runnable> removalListeners = new CopyOnWriteArrayList<>();
+
+	private volatile Map<String, ActiveKey> keys = Map.of();
+	private volatile ActiveKey current;
+	private volatile Instant latestActiveUntil;
+	private volatile long generation;
+	private volatile Instant lastReload = Instant.EPOCH;
+
+	public SigningKeyRing(
+			SigningKeyRepo signingKeyRepo,
+			@Value("${jwt.keys.rotation-interval:24h}") Duration rotationInterval,
+			@Value("${jwt.keys.refresh-interval:60000}") long refreshIntervalMillis,
+			@Value("${jwt.keys.publish-ahead:${jwt.jwks.max-age:5m}}") Duration publishAhead,
+			@Value("${jwt.keys.algorithm:HS256}") String algorithm,
+			@Value("${jwt.keys.encryption-key:}") String encryptionKey) {
+		this.signingKeyRepo = signingKeyRepo;
+		this.rotationInterval = rotationInterval;
+		this.refreshInterval = Duration.ofMillis(refreshIntervalMillis);
+		this.publishAhead = publishAhead;
+		this.algorithm = SignatureAlgorithm.forName(algorithm);
+		this.cipher = new SigningKeyCipher(encryptionKey);
+	}
+
+	@PostConstruct
+	public void init() {
+		if (!cipher.isEnabled()) {
+			log.warn("jwt.keys.encryption-key is not set; signing key secrets are stored unencrypted");
+		}
+		refresh();
+	}
+
+	public ActiveKey current() {
+		return current;
+	}
+
+	public Collection<ActiveKey> all() {
+		return keys.values();
+	}
+
+	public ActiveKey find(String kid) {
+		if (kid == null) {
+			return null;
+		}
+
+		ActiveKey key = keys.get(kid);
+
+		if (key == null && Instant.now().isAfter(lastReload.plus(MISS_RELOAD_INTERVAL))) {
+			reload();
+			key = keys.get(kid);
+		}
+
+		return key;
+	}
+
+	/** Runs {@code listener} after a reload in which any key disappeared. */
+	public void onKeyRemoved(Runnable listener) {
+		removalListeners.add(listener);
+	}
+
+	@Scheduled(fixedDelayString = "${jwt.keys.refresh-interval:60000}")
+	public void refresh() {
+		signingKeyRepo.deleteExpired(Instant.now());
+		reload();
+
+		// the successor has to be in place this long before the newest key stops signing
+		Instant lead = Instant.now().plus(publishAhead).plus(refreshInterval);
+		if (latestActiveUntil == null || !latestActiveUntil.isAfter(lead)) {
+			rotate();
+		}
+	}
+
+	private synchronized void rotate() {
+		Instant now = Instant.now();
+
+		// takes over when the newest key stops signing, or now if nothing is signing
+		Instant activeFrom = latestActiveUntil == null || latestActiveUntil.isBefore(now) ? now : latestActiveUntil;
+
+		SigningKey signingKey = new SigningKey();
+		signingKey.setKid(UUID.randomUUID().toString());
+		signingKey.setAlgorithm(algorithm.getValue());
+		signingKey.setGeneration(generation + 1);
+
+		if (algorithm.isHmac()) {
+			cipher.seal(signingKey, Keys.secretKeyFor(algorithm).getEncoded());
+		} else {
+			KeyPair pair = Keys.keyPairFor(algorithm);
+			cipher.seal(signingKey, pair.getPrivate().getEncoded());
+			signingKey.setPublicKey(pair.getPublic().getEncoded());
+		}
+
+		signingKey.setCreatedAt(now);
+		signingKey.setActiveFrom(activeFrom);
+		signingKey.setActiveUntil(activeFrom.plus(rotationInterval));
+		signingKey.setExpiresAt(activeFrom.plus(rotationInterval).plus(MAX_TOKEN_LIFETIME));
+
+		try {
+			signingKeyRepo.save(signingKey);
+			log.info("Published JWT signing key {}, signing from {}", signingKey.getKid(), activeFrom);
+		} catch (DataIntegrityViolationException e) {
+			log.info("Another node rotated to JWT signing key generation {} first", signingKey.getGeneration());
+		}
+
+		reload();
+	}
+
+	private synchronized void reload() {
+		Instant now = Instant.now();
+		List<SigningKey> rows = signingKeyRepo.findAllByExpiresAtAfter(now);
+		List<ActiveKey> loaded =
+				rows.stream().map(row -> ActiveKey.of(row, cipher.open(row))).toList();
+
+		Map<String, ActiveKey> previous = keys;
+		keys = loaded.stream().collect(Collectors.toUnmodifiableMap(ActiveKey::getKid, Function.identity()));
+		current = loaded.stream()
+				.filter(key -> !key.getActiveFrom().isAfter(now)
+						&& key.getActiveUntil().isAfter(now))
+				.max(Comparator.comparing(ActiveKey::getActiveFrom))
+				.orElse(null);
+		latestActiveUntil = loaded.stream()
+				.map(ActiveKey::getActiveUntil)
+				.max(Comparator.naturalOrder())
+				.orElse(null);
+		generation = rows.stream()
+				.map(SigningKey::getGeneration)
+				.filter(Objects::nonNull)
+				.max(Long::compare)
+				.orElse(0L);
+		lastReload = Instant.now();
+
+		// expired or deleted by hand; anything verified with it must be verified again
+		if (!keys.keySet().containsAll(previous.keySet())) {
+			removalListeners.forEach(Runnable::run);
+		}
+	}
+
+	@Getter
+	@AllArgsConstructor
+	public static class ActiveKey {
+		private final String kid;
+		private final SignatureAlgorithm algorithm;
+		private final Key signingKey;
+		private final Key verificationKey;
+		private final Instant createdAt;
+		private final Instant activeFrom;
+		private final Instant activeUntil;
+
+		/** Pre-encoded JOSE header for {@link CompactTokenCodec}; only set for HMAC keys. */
+		private final String encodedHeader;
+
+		static ActiveKey of(SigningKey signingKey, byte[] secret) {
+			SignatureAlgorithm algorithm = SignatureAlgorithm.forName(signingKey.getAlgorithm());
+			Instant activeFrom =
+					signingKey.getActiveFrom() != null ? signingKey.getActiveFrom() : signingKey.getCreatedAt();
+
+			if (algorithm.isHmac()) {
+				Key hmacKey = Keys.hmacShaKeyFor(secret);
+				return new ActiveKey(
+						signingKey.getKid(),
+						algorithm,
+						hmacKey,
+						hmacKey,
+						signingKey.getCreatedAt(),
+						activeFrom,
+						signingKey.getActiveUntil(),
+						CompactTokenCodec.encodedHeader(signingKey.getKid(), algorithm.getValue()));
+			}
+
+			try {
+				KeyFactory keyFactory = KeyFactory.getInstance(algorithm.isEllipticCurve() ? "EC" : "RSA");
+				return new ActiveKey(
+						signingKey.getKid(),
+						algorithm,
+						keyFactory.generatePrivate(new PKCS8EncodedKeySpec(secret)),
+						keyFactory.generatePublic(new X509EncodedKeySpec(signingKey.getPublicKey())),
+						signingKey.getCreatedAt(),
+						activeFrom,
+						signingKey.getActiveUntil(),
+						null);
+			} catch (GeneralSecurityException e) {
+				throw new IllegalStateException("Unreadable signing key " + signingKey.getKid(), e);
+			}
+		}
+	}
+}
@@ -0,0 +1,36 @@
+package northjosh.auth.services.jwt;
+
+import java.time.Instant;
+import lombok.AllArgsConstructor;
+import lombok.Value;
+
+/**
+ * Verified contents of one of our tokens. Obtained from {@link JwtService#parse(String)} so that the
+ * signature and payload are only checked once per request.
+ */
+@Value
+@AllArgsConstructor
+public class TokenClaims {
+
+	TokenType type;
+	String email;
+	Instant expiresAt;
+
+	/** The {@code jti} claim, or {@code null} for tokens minted before it was added. */
+	String tokenId;
+
+	/** The {@code fid} claim naming a refresh token's family; {@code null} for other tokens. */
+	String familyId;
+
+	public TokenClaims(TokenType type, String email, Instant expiresAt, String tokenId) {
+		this(type, email, expiresAt, tokenId, null);
+	}
+
+	public boolean is(TokenType other) {
+		return type == other;
+	}
+
+	public boolean isPending() {
+		return is(TokenType.PENDING);
+	}
+}
@@ -0,0 +1,26 @@
+package northjosh.auth.services.jwt;
+
+import java.util.Arrays;
+import lombok.Getter;
+
+@Getter
+public enum TokenType {
+	ACCESS("access"),
+	PENDING("pending"),
+	VERIFICATION("verification"),
+	REFRESH("refresh"),
+	PUSH_GRANT("push-grant");
+
+	private final String value;
+
+	TokenType(String value) {
+		this.value = value;
+	}
+
+	public static TokenType from(String value) {
+		return Arrays.stream(values())
+				.filter(type -> type.value.equals(value))
+				.findFirst()
+				.orElseThrow(() -> new IllegalArgumentException("Unknown token type " + value));
+	}
+}
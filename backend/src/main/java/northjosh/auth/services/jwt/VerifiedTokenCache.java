@@ -0,0 +1,98 @@
+package northjosh.auth.services.jwt;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.function.Function;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Remembers the claims of tokens whose signature has already been verified, keyed by the token's
+ * signature segment: it already identifies the token, so a lookup costs a substring rather than a
+ * digest of the whole token. A forged token reusing a cached signature gets the claims that
+ * signature was verified for, never its own. Each entry expires at the token's own {@code exp}, so
+ * a cached token can never outlive its validity, and the whole cache is dropped whenever {@link
+ * SigningKeyRing} loses a key, so nothing signed by a removed key is served from it.
+ */
+@Component
+public class VerifiedTokenCache {
+
+	private final Cache<String, TokenClaims> cache;
+
+	public VerifiedTokenCache(
+			@Value("${jwt.cache.enabled:true}") boolean enabled,
+			@Value("${jwt.cache.max-size:10000}") long maxSize,
+			MeterRegistry meterRegistry) {
+
+		if (!enabled) {
+			this.cache = null;
+			return;
+		}
+
+		this.cache = Caffeine.newBuilder()
+				.maximumSize(maxSize)
+				.expireAfter(new UntilTokenExpiry())
+				.recordStats()
+				.build();
+
+		CaffeineCacheMetrics.monitor(meterRegistry, cache, "jwt.verified-tokens");
+	}
+
+	public TokenClaims get(String token, Function<String, TokenClaims> verifier) {
+		if (cache == null) {
+			return verifier.apply(token);
+		}
+
+		String key = signature(token);
+		TokenClaims claims = cache.get(key, ignored -> verifier.apply(token));
+
+		// the entry may not have been swept yet even though the token has just expired
+		if (!claims.getExpiresAt().isAfter(Instant.now())) {
+			cache.invalidate(key);
+			return verifier.apply(token);
+		}
+
+		return claims;
+	}
+
+	public void invalidate(String token) {
+		if (cache != null) {
+			cache.invalidate(signature(token));
+		}
+	}
+
+	public void invalidateAll() {
+		if (cache != null) {
+			cache.invalidateAll();
+		}
+	}
+
+	// nothing is cached unless the verifier accepted the token, so a malformed one never occupies a key
+	private static String signature(String token) {
+		return token.substring(token.lastIndexOf('.') + 1);
+	}
+
+	private static class UntilTokenExpiry implements Expiry<String, TokenClaims> {
+
+		@Override
+		public long expireAfterCreate(String key, TokenClaims claims, long currentTime) {
+			return Math.max(
+					0, Duration.between(Instant.now(), claims.getExpiresAt()).toNanos());
+		}
+
+		@Override
+		public long expireAfterUpdate(String key, TokenClaims claims, long currentTime, long currentDuration) {
+			return expireAfterCreate(key, claims, currentTime);
+		}
+
+		@Override
+		public long expireAfterRead(String key, TokenClaims claims, long currentTime, long currentDuration) {
+			return currentDuration;
+		}
+	}
+}
@@ -0,0 +1,200 @@
+package northjosh.auth.services.otp;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import lombok.extern.slf4j.Slf4j;
+import northjosh.auth.dto.PageCursor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+/**
+ * Default {@link PushAttemptStore}, kept entirely in this JVM so a push login never touches the
+ * connection pool. Attempts are indexed by request id in a concurrent map and by email in lock
+ * striped buckets. They expire through a hashed timing wheel: each attempt is dropped into the slot
+ * of the tick it expires on, and one thread sweeps a slot per tick, so expiry costs O(1) per attempt
+ * however many are pending.
+ *
+ * <p>Attempts are lost on restart and are only visible to the node that created them. Use {@code
+ * push.attempts.store=jpa} when verification may land on another node.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "push.attempts.store", havingValue = "memory", matchIfMissing = true)
+public class InMemoryPushAttemptStore implements PushAttemptStore {
+
+	private static final int STRIPES = 16;
+
+	private final Map<String, PushAttempt> byRequestId = new ConcurrentHashMap<>();
+	private final Stripe[] stripes = new Stripe[STRIPES];
+
+	private final long tickMillis;
+	private final Queue<PushAttempt>[] wheel;
+	private final int mask;
+	private long sweptTick;
+
+	private final ScheduledExecutorService ticker =
+			Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("push-attempt-expiry-"));
+
+	private final List<Consumer<PushAttempt>> expiryListeners = new CopyOnWriteArrayList<>();
+	private final Counter expired;
+
+	@SuppressWarnings("unchecked")
+	public InMemoryPushAttemptStore(
+			@Value("${push.attempts.ttl:2m}") Duration ttl,
+			@Value("${push.attempts.tick:1s}") Duration tick,
+			MeterRegistry meterRegistry) {
+		for (int i = 0; i < STRIPES; i++) {
+			stripes[i] = new Stripe();
+		}
+
+		// enough slots that one revolution covers the ttl, so an attempt is seen on its first pass
+		this.tickMillis = tick.toMillis();
+		int slots = Integer.highestOneBit((int) Math.max(1, ttl.toMillis() / tickMillis) * 2);
+		this.wheel = new Queue[slots];
+		for (int i = 0; i < slots; i++) {
+			wheel[i] = new ConcurrentLinkedQueue<>();
+		}
+		this.mask = slots - 1;
+		this.sweptTick = System.currentTimeMillis() / tickMillis;
+
+		this.expired = meterRegistry.counter("push.attempts.expired");
+		Gauge.builder("push.attempts.pending", byRequestId, Map::size).register(meterRegistry);
+
+		ticker.scheduleAtFixedRate(this::advance, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+	}
+
+	@Override
+	public void save(PushAttempt attempt) {
+		PushAttempt previous = byRequestId.put(attempt.getRequestId(), attempt);
+		if (previous != null) {
+			stripe(previous.getEmail()).remove(previous);
+		}
+		stripe(attempt.getEmail()).add(attempt);
+
+		long deadline = Math.floorDiv(attempt.getExpiresAt().toEpochMilli() + tickMillis - 1, tickMillis);
+		wheel[(int) (deadline & mask)].add(attempt);
+	}
+
+	@Override
+	public Optional<PushAttempt> take(String requestId) {
+		PushAttempt attempt = byRequestId.remove(requestId);
+		if (attempt == null) {
+			return Optional.empty();
+		}
+
+		stripe(attempt.getEmail()).remove(attempt);
+
+		// taken before the wheel reached it, so the sweep will not report it
+		if (attempt.isExpired()) {
+			expire(attempt);
+			return Optional.empty();
+		}
+
+		return Optional.of(attempt);
+	}
+
+	@Override
+	public List<PushAttempt> findByEmail(String email, PageCursor after, int limit) {
+		return stripe(email).requestIds(email).stream()
+				.map(byRequestId::get)
+				.filter(attempt -> attempt != null && !attempt.isExpired())
+				.filter(attempt -> after == null || after.precedes(attempt.getCreatedAt(), attempt.getRequestId()))
+				.sorted(Comparator.comparing(PushAttempt::getCreatedAt).thenComparing(PushAttempt::getRequestId))
+				.limit(limit)
+				.toList();
+	}
+
+	private void advance() {
+		try {
+			long now = System.currentTimeMillis() / tickMillis;
+
+			for (; sweptTick <= now; sweptTick++) {
+				Queue<PushAttempt> slot = wheel[(int) (sweptTick & mask)];
+				List<PushAttempt> notYet = new ArrayList<>();
+
+				PushAttempt attempt;
+				while ((attempt = slot.poll()) != null) {
+					if (!attempt.isExpired()) {
+						notYet.add(attempt);
+					} else if (byRequestId.remove(attempt.getRequestId(), attempt)) {
+						stripe(attempt.getEmail()).remove(attempt);
+						expire(attempt);
+					}
+				}
+
+				slot.addAll(notYet);
+			}
+		} catch (RuntimeException e) {
+			// an exception would stop the ticker for good
+			log.warn("Push attempt expiry failed: {}", e.getMessage());
+		}
+	}
+
+	@Override
+	public void onExpired(Consumer<PushAttempt> listener) {
+		expiryListeners.add(listener);
+	}
+
+	private void expire(PushAttempt attempt) {
+		expired.increment();
+		for (Consumer<PushAttempt> listener : expiryListeners) {
+			try {
+				listener.accept(attempt);
+			} catch (RuntimeException e) {
+				log.warn("Push attempt expiry listener failed: {}", e.getMessage());
+			}
+		}
+	}
+
+	private Stripe stripe(String email) {
+		return stripes[(email.hashCode() & 0x7fffffff) % STRIPES];
+	}
+
+	@PreDestroy
+	public void shutdown() {
+		ticker.shutdownNow();
+	}
+
+	private static final class Stripe {
+
+		private final Map<String, Set<String>> byEmail = new HashMap<>();
+
+		synchronized void add(PushAttempt attempt) {
+			byEmail.computeIfAbsent(attempt.getEmail(), key -> new LinkedHashSet<>())
+					.add(attempt.getRequestId());
+		}
+
+		synchronized void remove(PushAttempt attempt) {
+			Set<String> ids = byEmail.get(attempt.getEmail());
+			if (ids != null && ids.remove(attempt.getRequestId()) && ids.isEmpty()) {
+				byEmail.remove(attempt.getEmail());
+			}
+		}
+
+		synchronized List<String> requestIds(String email) {
+			Set<String> ids = byEmail.get(email);
+			return ids == null ? List.of() : List.copyOf(ids);
+		}
+	}
+}
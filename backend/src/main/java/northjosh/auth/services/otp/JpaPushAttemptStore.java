@@ -0,0 +1,134 @@
+package northjosh.auth.services.otp;
+
+import jakarta.transaction.Transactional;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import northjosh.auth.dto.PageCursor;
+import northjosh.auth.repo.pushauth.PushAuth;
+import northjosh.auth.repo.pushauth.PushAuthRepo;
+import northjosh.auth.repo.user.UserRepo;
+import northjosh.auth.services.sweep.ExpirySweeper;
+import northjosh.auth.services.sweep.SweepTarget;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+
+/**
+ * Durable {@link PushAttemptStore} on the {@code push_auth} table, shared by every node. Expired rows
+ * are removed by the {@link ExpirySweeper}.
+ */
+@Component
+@ConditionalOnProperty(name = "push.attempts.store", havingValue = "jpa")
+public class JpaPushAttemptStore implements PushAttemptStore {
+
+	private final PushAuthRepo pushAuthRepo;
+	private final UserRepo userRepo;
+	private final Duration ttl;
+	private final List<Consumer<PushAttempt>> expiryListeners = new CopyOnWriteArrayList<>();
+
+	public JpaPushAttemptStore(
+			PushAuthRepo pushAuthRepo,
+			UserRepo userRepo,
+			ExpirySweeper sweeper,
+			@Value("${push.attempts.ttl:2m}") Duration ttl) {
+		this.pushAuthRepo = pushAuthRepo;
+		this.userRepo = userRepo;
+		this.ttl = ttl;
+
+		sweeper.register(SweepTarget.builder()
+				.table("push_auth")
+				.idColumn("id")
+				.timestampColumn("created_at")
+				.cutoff(() -> LocalDateTime.now().minus(ttl))
+				.returning("request_id, user_id, created_at, "
+						+ "(select u.email from users u where u.id = push_auth.user_id) as email")
+				.onDeleted(rows -> notifyExpired(sweptAttempt(rows)))
+				.build());
+	}
+
+	@Override
+	@Transactional
+	public void save(PushAttempt attempt) {
+		pushAuthRepo.deletePushAuthByRequestId(attempt.getRequestId());
+
+		PushAuth entity = new PushAuth();
+		entity.setRequestId(attempt.getRequestId());
+		entity.setOtp(attempt.getOtp());
+		entity.setExchangeKeyHash(attempt.getExchangeKeyHash());
+		entity.setUser(userRepo.getReferenceById(attempt.getUserId()));
+		entity.setClientInfo(attempt.getClientInfo());
+		entity.setCreatedAt(attempt.getCreatedAt());
+		pushAuthRepo.save(entity);
+	}
+
+	@Override
+	@Transactional
+	public Optional<PushAttempt> take(String requestId) {
+		Optional<PushAuth> entity = pushAuthRepo.findPushAuthByRequestId(requestId);
+		entity.ifPresent(pushAuthRepo::delete);
+
+		Optional<PushAttempt> attempt = entity.map(this::toAttempt);
+		if (attempt.isPresent() && attempt.get().isExpired()) {
+			notifyExpired(attempt.get());
+			return Optional.empty();
+		}
+
+		return attempt;
+	}
+
+	@Override
+	public List<PushAttempt> findByEmail(String email, PageCursor after, int limit) {
+		LocalDateTime expiredBefore = LocalDateTime.now().minus(ttl);
+
+		List<PushAuth> page = after == null
+				? pushAuthRepo.findPage(email, expiredBefore, Limit.of(limit))
+				: pushAuthRepo.findPageAfter(
+						email, expiredBefore, after.getCreatedAt(), after.getId(), Limit.of(limit));
+
+		return page.stream().map(this::toAttempt).toList();
+	}
+
+	@Override
+	public void onExpired(Consumer<PushAttempt> listener) {
+		expiryListeners.add(listener);
+	}
+
+	private void notifyExpired(PushAttempt attempt) {
+		expiryListeners.forEach(listener -> listener.accept(attempt));
+	}
+
+	/** Only what expiry listeners need; the secrets and client details are gone with the row. */
+	private PushAttempt sweptAttempt(ResultSet row) throws SQLException {
+		LocalDateTime createdAt = row.getTimestamp("created_at").toLocalDateTime();
+
+		return new PushAttempt(
+				row.getString("request_id"),
+				null,
+				null,
+				row.getLong("user_id"),
+				row.getString("email"),
+				null,
+				createdAt,
+				createdAt.plus(ttl).atZone(ZoneId.systemDefault()).toInstant());
+	}
+
+	private PushAttempt toAttempt(PushAuth entity) {
+		return new PushAttempt(
+				entity.getRequestId(),
+				entity.getOtp(),
+				entity.getExchangeKeyHash(),
+				entity.getUser().getId(),
+				entity.getUser().getEmail(),
+				entity.getClientInfo(),
+				entity.getCreatedAt(),
+				entity.getCreatedAt().plus(ttl).atZone(ZoneId.systemDefault()).toInstant());
+	}
+}
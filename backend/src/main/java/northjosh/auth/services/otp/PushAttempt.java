@@ -0,0 +1,29 @@
+package northjosh.auth.services.otp;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import lombok.Value;
+import northjosh.auth.repo.pushauth.ClientInfo;
+
+/** A pending push login, waiting for the user to approve it on another device. */
+@Value
+public class PushAttempt {
+	String requestId;
+	String otp;
+
+	/**
+	 * SHA-256 of the key only the browser that started the login was given, which it presents to
+	 * redeem the grant. The key itself is never stored.
+	 */
+	String exchangeKeyHash;
+
+	Long userId;
+	String email;
+	ClientInfo clientInfo;
+	LocalDateTime createdAt;
+	Instant expiresAt;
+
+	public boolean isExpired() {
+		return !expiresAt.isAfter(Instant.now());
+	}
+}
@@ -0,0 +1,31 @@
+package northjosh.auth.services.otp;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+import northjosh.auth.dto.PageCursor;
+
+/**
+ * Where pending push logins live until they are approved or expire. Expired attempts are never
+ * returned, whether or not they have been swept yet.
+ */
+public interface PushAttemptStore {
+
+	/** Stores the attempt, replacing any other with the same request id. */
+	void save(PushAttempt attempt);
+
+	/** Removes and returns the attempt, so it can only be used once. */
+	Optional<PushAttempt> take(String requestId);
+
+	/**
+	 * Up to {@code limit} of the user's pending attempts after {@code after} (from the start when
+	 * null), ordered by creation time then request id.
+	 */
+	List<PushAttempt> findByEmail(String email, PageCursor after, int limit);
+
+	/**
+	 * Called with each attempt that expires without being taken, once, on whichever node notices.
+	 * Listeners run on the expiring thread and should not block.
+	 */
+	void onExpired(Consumer<PushAttempt> listener);
+}
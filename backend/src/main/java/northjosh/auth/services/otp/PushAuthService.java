@@ -1,91 +1,192 @@
 package northjosh.auth.services.otp;
 
+import io.jsonwebtoken.JwtException;
 import jakarta.persistence.NoResultException;
 import jakarta.servlet.http.HttpServletRequest;
-import jakarta.transaction.Transactional;
-import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.util.HexFormat;
 import java.util.List;
 import java.util.Map;
+import java.util.regex.Pattern;
 import northjosh.auth.controllers.SseEmitters;
+import northjosh.auth.dto.AuthResponse;
+import northjosh.auth.dto.PageCursor;
+import northjosh.auth.dto.PushAuthResponse;
+import northjosh.auth.dto.mapper.PushAuthMapper;
 import northjosh.auth.exceptions.WebAuthnException;
-import northjosh.auth.repo.pushauth.PushAuth;
-import northjosh.auth.repo.pushauth.PushAuthRepo;
-import northjosh.auth.repo.user.User;
+import northjosh.auth.services.auth.RefreshTokenService;
 import northjosh.auth.services.jwt.JwtService;
-import org.springframework.scheduling.annotation.Scheduled;
+import northjosh.auth.services.jwt.TokenClaims;
+import northjosh.auth.services.jwt.TokenType;
+import northjosh.auth.services.user.UserSnapshot;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 @Service
-@Transactional
 public class PushAuthService {
 
-	private final PushAuthRepo pushAuthRepo;
+	private static final SecureRandom RANDOM = new SecureRandom();
+	private static final int REQUEST_ID_BYTES = 16;
+	private static final Pattern REQUEST_ID = Pattern.compile("[0-9a-f]{" + REQUEST_ID_BYTES * 2 + "}");
+
+	private final PushAttemptStore attemptStore;
 	private final SseEmitters sseEmitters;
 	private final JwtService jwtService;
-
-	public PushAuthService(PushAuthRepo pushAuthRepo, SseEmitters sseEmitters, JwtService jwtService) {
-		this.pushAuthRepo = pushAuthRepo;
+	private final RefreshTokenService refreshTokenService;
+	private final UserAgentParser userAgentParser;
+	private final PushAuthMapper pushAuthMapper;
+	private final Duration ttl;
+
+	public PushAuthService(
+			PushAttemptStore attemptStore,
+			SseEmitters sseEmitters,
+			JwtService jwtService,
+			RefreshTokenService refreshTokenService,
+			UserAgentParser userAgentParser,
+			PushAuthMapper pushAuthMapper,
+			@Value("${push.attempts.ttl:2m}") Duration ttl) {
+		this.attemptStore = attemptStore;
 		this.sseEmitters = sseEmitters;
 		this.jwtService = jwtService;
+		this.refreshTokenService = refreshTokenService;
+		this.userAgentParser = userAgentParser;
+		this.pushAuthMapper = pushAuthMapper;
+		this.ttl = ttl;
+
+		attemptStore.onExpired(attempt -> publishRemoved(attempt, "expired"));
 	}
 
-	public PushAuth createSession(User user, HttpServletRequest request) {
+	/**
+	 * The channel streaming a user's pending attempts to the devices that can approve them. Only ever
+	 * joined by an authenticated caller, and its prefix is one no login channel can carry.
+	 */
+	public static String attemptsChannel(String email) {
+		return "attempts:" + email;
+	}
 
-		String requestId = request.getSession().getId();
-		String otp = generateOTP();
+	/** The channel the browser that started a login waits on. Callers must check {@link #isRequestId}. */
+	public static String loginChannel(String requestId) {
+		return "login:" + requestId;
+	}
 
-		PushAuth attempt = new PushAuth();
-		attempt.setOtp(otp);
-		attempt.setRequestId(requestId);
-		attempt.setUser(user);
-		pushAuthRepo.deletePushAuthByRequestId(requestId);
+	/** Whether {@code value} has the shape of an id from {@link #newRequestId()}. */
+	public static boolean isRequestId(String value) {
+		return value != null && REQUEST_ID.matcher(value).matches();
+	}
 
-		return pushAuthRepo.save(attempt);
+	/** Starts a push login. The response is the only place the exchange key ever appears. */
+	public PushAuthResponse createSession(UserSnapshot user, HttpServletRequest request) {
+
+		String requestId = newRequestId();
+		String otp = generateOTP();
+		String exchangeKey = newRequestId();
+
+		PushAttempt attempt = new PushAttempt(
+				requestId,
+				otp,
+				hash(exchangeKey),
+				user.getId(),
+				user.getEmail(),
+				userAgentParser.clientInfo(request),
+				LocalDateTime.now(),
+				Instant.now().plus(ttl));
+		attemptStore.save(attempt);
+
+		sseEmitters.publish(attemptsChannel(attempt.getEmail()), "attempt-created", pushAuthMapper.toDto(attempt));
+
+		return pushAuthMapper.toResponse(attempt, user, exchangeKey);
 	}
 
 	public void verify(Map<String, String> dto) {
 
 		String requestId = dto.get("requestId");
 
-		PushAuth attempt = pushAuthRepo
-				.findPushAuthByRequestId(requestId)
-				.orElseThrow(() -> new NoResultException("Login Attempt Doesn't exist"));
+		// taken either way: a wrong OTP ends the attempt too
+		PushAttempt attempt =
+				attemptStore.take(requestId).orElseThrow(() -> new NoResultException("Login Attempt Doesn't exist"));
 
 		if (!dto.get("otp").equals(attempt.getOtp())) {
-			pushAuthRepo.delete(attempt);
+			publishRemoved(attempt, "rejected");
 			throw new WebAuthnException("invalid OTP, Please try logging in again session again");
 		}
 
-		String token = jwtService.generateAccessToken(attempt.getUser().getEmail());
+		publishRemoved(attempt, "verified");
+
+		// anyone who names the channel sees this event, so it carries a grant only the initiator can redeem
+		String grant = jwtService.generatePushGrant(attempt.getEmail(), attempt.getExchangeKeyHash());
+
+		sseEmitters.publish(loginChannel(requestId), "login-success", Map.of("grant", grant));
+	}
+
+	/**
+	 * Redeems a grant from {@code login-success} for tokens, once, given the key from {@code
+	 * /generate}. The grant is consumed by a single insert into the revocation table, so of two
+	 * concurrent redemptions exactly one gets tokens.
+	 */
+	public AuthResponse exchange(String grant, String exchangeKey) {
+		TokenClaims claims;
+
+		try {
+			claims = jwtService.parse(grant);
+		} catch (JwtException | IllegalArgumentException e) {
+			throw new WebAuthnException("Invalid Token");
+		}
+
+		if (!claims.is(TokenType.PUSH_GRANT)
+				|| exchangeKey == null
+				|| !MessageDigest.isEqual(
+						hash(exchangeKey).getBytes(StandardCharsets.US_ASCII),
+						claims.getTokenId().getBytes(StandardCharsets.US_ASCII))) {
+			throw new WebAuthnException("Invalid Token");
+		}
 
-		sseEmitters.get(requestId).ifPresent(emitter -> {
-			try {
-				emitter.send(SseEmitter.event().name("login-success").data(Map.of("token", token)));
-			} catch (IOException e) {
-				emitter.completeWithError(e);
-			}
-		});
+		if (!jwtService.consume(claims)) {
+			throw new WebAuthnException("Invalid Token");
+		}
 
-		pushAuthRepo.delete(attempt);
+		return new AuthResponse(
+				jwtService.generateAccessToken(claims.getEmail()), false, refreshTokenService.issue(claims.getEmail()));
 	}
 
-	public List<PushAuth> getAll(String email) {
-		return pushAuthRepo.findAllByUserEmail(email);
+	/** A page of the user's pending attempts, fetching one extra row to show whether more follow. */
+	public List<PushAttempt> page(String email, PageCursor after, int size) {
+		return attemptStore.findByEmail(email, after, size + 1);
 	}
 
-	private String generateOTP() {
-		SecureRandom random = new SecureRandom();
-		int randomNumber = random.nextInt(900000) + random.nextInt(900000);
-		return String.valueOf(randomNumber);
+	/**
+	 * 128 random bits as hex. Nothing about the attempt lives in the servlet container, and hex never
+	 * contains the {@code _} that separates the parts of a clientId.
+	 */
+	static String newRequestId() {
+		byte[] bytes = new byte[REQUEST_ID_BYTES];
+		RANDOM.nextBytes(bytes);
+		return HexFormat.of().formatHex(bytes);
 	}
 
-	@Scheduled(fixedRate = 60000)
-	public void deleteExpiredEntries() {
-		LocalDateTime cutoff = LocalDateTime.now().minusMinutes(2);
-		pushAuthRepo.deletePushAuthByCreatedAtBefore(cutoff);
-		System.out.println("Entries deleted");
+	private static String hash(String exchangeKey) {
+		try {
+			byte[] digest = MessageDigest.getInstance("SHA-256").digest(exchangeKey.getBytes(StandardCharsets.UTF_8));
+			return HexFormat.of().formatHex(digest);
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private void publishRemoved(PushAttempt attempt, String reason) {
+		sseEmitters.publish(
+				attemptsChannel(attempt.getEmail()),
+				"attempt-removed",
+				Map.of("requestId", attempt.getRequestId(), "reason", reason));
+	}
+
+	private String generateOTP() {
+		int randomNumber = RANDOM.nextInt(900000) + RANDOM.nextInt(900000);
+		return String.valueOf(randomNumber);
 	}
 }
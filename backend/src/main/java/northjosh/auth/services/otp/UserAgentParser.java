@@ -0,0 +1,39 @@
+package northjosh.auth.services.otp;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.servlet.http.HttpServletRequest;
+import northjosh.auth.repo.pushauth.ClientInfo;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import ua_parser.Client;
+import ua_parser.Parser;
+
+/**
+ * One shared {@link Parser}, whose regex set is compiled once at startup, behind a bounded cache of
+ * parsed User-Agent strings. Real traffic has few distinct agents, so nearly every lookup is a hit.
+ */
+@Component
+public class UserAgentParser {
+
+	private final Parser parser = new Parser();
+	private final Cache<String, Client> clients;
+
+	public UserAgentParser(@Value("${push.user-agents.cache-size:1000}") long cacheSize, MeterRegistry meterRegistry) {
+		this.clients =
+				Caffeine.newBuilder().maximumSize(cacheSize).recordStats().build();
+
+		CaffeineCacheMetrics.monitor(meterRegistry, clients, "push.user-agents");
+	}
+
+	public Client parse(String userAgent) {
+		return clients.get(userAgent == null ? "" : userAgent, parser::parse);
+	}
+
+	public ClientInfo clientInfo(HttpServletRequest request) {
+		return new ClientInfo(request, parse(request.getHeader(HttpHeaders.USER_AGENT)));
+	}
+}
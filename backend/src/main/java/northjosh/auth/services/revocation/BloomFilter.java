@@ -0,0 +1,86 @@
+package northjosh.auth.services.revocation;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed-size Bloom filter over strings. {@link #put} and {@link #mightContain} are safe to call
+ * concurrently; bits are only ever set, never cleared, so a reader can at worst miss an insert that
+ * is still in flight.
+ */
+class BloomFilter {
+
+	private final AtomicLongArray bits;
+	private final long bitCount;
+	private final int hashCount;
+
+	BloomFilter(long expectedInsertions, double falsePositiveRate) {
+		long n = Math.max(1, expectedInsertions);
+		long m = (long) Math.ceil(-n * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+		this.bits = new AtomicLongArray(Math.toIntExact((m + 63) / 64));
+		this.bitCount = bits.length() * 64L;
+		this.hashCount = Math.max(1, (int) Math.round((double) bitCount / n * Math.log(2)));
+	}
+
+	void put(String value) {
+		long hash = hash(value);
+		int h1 = (int) hash;
+		int h2 = (int) (hash >>> 32);
+
+		for (int i = 1; i <= hashCount; i++) {
+			long index = ((h1 + (long) i * h2) & Long.MAX_VALUE) % bitCount;
+			long mask = 1L << index;
+			int word = (int) (index >>> 6);
+
+			long current;
+			do {
+				current = bits.get(word);
+				if ((current & mask) != 0) {
+					break;
+				}
+			} while (!bits.compareAndSet(word, current, current | mask));
+		}
+	}
+
+	boolean mightContain(String value) {
+		long hash = hash(value);
+		int h1 = (int) hash;
+		int h2 = (int) (hash >>> 32);
+
+		for (int i = 1; i <= hashCount; i++) {
+			long index = ((h1 + (long) i * h2) & Long.MAX_VALUE) % bitCount;
+			if ((bits.get((int) (index >>> 6)) & (1L << index)) == 0) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	/** Probability that a value never put reports {@code true}, given the bits set so far. */
+	double expectedFalsePositiveRate() {
+		long set = 0;
+		for (int i = 0; i < bits.length(); i++) {
+			set += Long.bitCount(bits.get(i));
+		}
+		return Math.pow((double) set / bitCount, hashCount);
+	}
+
+	long sizeInBytes() {
+		return bitCount / 8;
+	}
+
+	// FNV-1a followed by the murmur3 finaliser, good enough to split into two independent halves
+	private static long hash(String value) {
+		long hash = 0xcbf29ce484222325L;
+		for (int i = 0; i < value.length(); i++) {
+			hash ^= value.charAt(i);
+			hash *= 0x100000001b3L;
+		}
+		hash ^= hash >>> 33;
+		hash *= 0xff51afd7ed558ccdL;
+		hash ^= hash >>> 33;
+		hash *= 0xc4ceb9fe1a85ec53L;
+		hash ^= hash >>> 33;
+		return hash;
+	}
+}
@@ -0,0 +1,125 @@
+package northjosh.auth.services.revocation;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import java.time.Instant;
+import java.util.List;
+import lombok.extern.slf4j.Slf4j;
+import northjosh.auth.repo.revocation.RevokedToken;
+import northjosh.auth.repo.revocation.RevokedTokenRepo;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * Denylist of revoked token ids ({@code jti}). The {@code revoked_tokens} table is the source of
+ * truth; an in-memory Bloom filter built from it answers most lookups without touching the
+ * database, because a negative answer is always correct. Only a positive falls through to a
+ * primary-key lookup.
+ *
+ * <p>Revocations made on this node are added to the filter immediately. Those made on other nodes
+ * are picked up when the filter is rebuilt, every {@code jwt.revocation.rebuild-interval}.
+ */
+@Slf4j
+@Service
+public class TokenRevocationService {
+
+	private final RevokedTokenRepo revokedTokenRepo;
+	private final long expectedInsertions;
+	private final double falsePositiveRate;
+
+	private final Counter negatives;
+	private final Counter falsePositives;
+	private final Counter confirmed;
+
+	private volatile BloomFilter filter;
+
+	public TokenRevocationService(
+			RevokedTokenRepo revokedTokenRepo,
+			MeterRegistry meterRegistry,
+			@Value("${jwt.revocation.expected-insertions:100000}") long expectedInsertions,
+			@Value("${jwt.revocation.false-positive-rate:0.01}") double falsePositiveRate) {
+		this.revokedTokenRepo = revokedTokenRepo;
+		this.expectedInsertions = expectedInsertions;
+		this.falsePositiveRate = falsePositiveRate;
+
+		this.negatives = meterRegistry.counter("jwt.revocation.checks", "result", "negative");
+		this.falsePositives = meterRegistry.counter("jwt.revocation.checks", "result", "false-positive");
+		this.confirmed = meterRegistry.counter("jwt.revocation.checks", "result", "revoked");
+
+		Gauge.builder("jwt.revocation.bloom.false-positive-rate", this, s -> s.filter.expectedFalsePositiveRate())
+				.register(meterRegistry);
+		Gauge.builder("jwt.revocation.bloom.size", this, s -> s.filter.sizeInBytes())
+				.baseUnit("bytes")
+				.register(meterRegistry);
+	}
+
+	@PostConstruct
+	public void init() {
+		rebuild();
+	}
+
+	public boolean isRevoked(String jti) {
+		if (jti == null) {
+			return false;
+		}
+
+		if (!filter.mightContain(jti)) {
+			negatives.increment();
+			return false;
+		}
+
+		if (revokedTokenRepo.existsById(jti)) {
+			confirmed.increment();
+			return true;
+		}
+
+		falsePositives.increment();
+		return false;
+	}
+
+	public synchronized void revoke(String jti, Instant expiresAt) {
+		if (jti == null) {
+			return;
+		}
+
+		RevokedToken revoked = new RevokedToken();
+		revoked.setJti(jti);
+		revoked.setExpiresAt(expiresAt);
+		revoked.setRevokedAt(Instant.now());
+		revokedTokenRepo.save(revoked);
+
+		filter.put(jti);
+	}
+
+	/**
+	 * As {@link #revoke}, but only the first caller for a {@code jti} succeeds: the insert is
+	 * conditional on the primary key, so concurrent callers on any node cannot both see {@code true}.
+	 */
+	public boolean revokeOnce(String jti, Instant expiresAt) {
+		if (jti == null) {
+			return false;
+		}
+
+		boolean inserted = revokedTokenRepo.insertIfAbsent(jti, expiresAt, Instant.now()) == 1;
+		filter.put(jti);
+		return inserted;
+	}
+
+	/** Drops expired entries and rebuilds the filter, which also picks up other nodes' revocations. */
+	@Scheduled(
+			fixedDelayString = "${jwt.revocation.rebuild-interval:30000}",
+			initialDelayString = "${jwt.revocation.rebuild-interval:30000}")
+	public synchronized void rebuild() {
+		revokedTokenRepo.deleteExpired(Instant.now());
+		List<String> ids = revokedTokenRepo.findLiveIds(Instant.now());
+
+		BloomFilter rebuilt = new BloomFilter(Math.max(expectedInsertions, ids.size() * 2L), falsePositiveRate);
+		ids.forEach(rebuilt::put);
+		filter = rebuilt;
+
+		log.debug("Rebuilt revocation filter with {} entries", ids.size());
+	}
+}
@@ -0,0 +1,175 @@
+package northjosh.auth.services.sweep;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Deletes expired rows from every registered {@link SweepTarget} every {@code auth.sweeper.interval}.
+ * Each table is swept oldest first in DELETEs of {@code auth.sweeper.chunk-size} rows, each committed
+ * on its own so no lock is held for long, and at most {@code auth.sweeper.max-chunks} of them per
+ * sweep; whatever is left waits for the next one.
+ *
+ * <p>Only one node sweeps at a time: the sweep runs on a single pooled connection holding a Postgres
+ * session advisory lock, and a node that cannot take it skips the cycle. The lock goes with the
+ * connection if the node dies mid-sweep. Both the lock and {@code delete ... returning} are
+ * PostgreSQL-only, so on any other database (H2 in tests) the sweeper does nothing.
+ */
+@Slf4j
+@Component
+public class ExpirySweeper {
+
+	// any fixed key works, as long as every node contends for the same one
+	static final long LOCK_KEY = 0x61757468_73776565L;
+
+	private final JdbcTemplate jdbcTemplate;
+	private final MeterRegistry meterRegistry;
+	private final int chunkSize;
+	private final int maxChunks;
+
+	private final List<SweepTarget> targets = new CopyOnWriteArrayList<>();
+	private final Counter skipped;
+
+	// checked on the first sweep, the database cannot change under a running node
+	private volatile Boolean postgres;
+
+	public ExpirySweeper(
+			JdbcTemplate jdbcTemplate,
+			MeterRegistry meterRegistry,
+			@Value("${auth.sweeper.chunk-size:1000}") int chunkSize,
+			@Value("${auth.sweeper.max-chunks:50}") int maxChunks) {
+		this.jdbcTemplate = jdbcTemplate;
+		this.meterRegistry = meterRegistry;
+		this.chunkSize = chunkSize;
+		this.maxChunks = maxChunks;
+
+		this.skipped = meterRegistry.counter("expiry.sweep.skipped");
+	}
+
+	public void register(SweepTarget target) {
+		targets.add(target);
+	}
+
+	@Scheduled(fixedDelayString = "${auth.sweeper.interval:60000}")
+	public void sweep() {
+		if (targets.isEmpty()) {
+			return;
+		}
+
+		try {
+			jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+				sweepUnderLock(connection);
+				return null;
+			});
+		} catch (DataAccessException e) {
+			log.warn("Expiry sweep failed: {}", e.getMessage());
+		}
+	}
+
+	private void sweepUnderLock(Connection connection) throws SQLException {
+		if (!isPostgres(connection)) {
+			return;
+		}
+
+		boolean autoCommit = connection.getAutoCommit();
+		connection.setAutoCommit(true);
+
+		try {
+			if (!advisoryLock(connection, "select pg_try_advisory_lock(?)")) {
+				skipped.increment();
+				return;
+			}
+
+			try {
+				for (SweepTarget target : targets) {
+					try {
+						sweep(connection, target);
+					} catch (SQLException e) {
+						// autocommitted, so the connection is still usable for the other tables
+						log.warn("Expiry sweep of {} failed: {}", target.getTable(), e.getMessage());
+					}
+				}
+			} finally {
+				advisoryLock(connection, "select pg_advisory_unlock(?)");
+			}
+		} finally {
+			connection.setAutoCommit(autoCommit);
+		}
+	}
+
+	private void sweep(Connection connection, SweepTarget target) throws SQLException {
+		long start = System.nanoTime();
+		String sql = target.deleteSql();
+		Object cutoff = target.getCutoff().get();
+		long reclaimed = 0;
+
+		for (int chunk = 0; chunk < maxChunks; chunk++) {
+			int deleted = 0;
+
+			try (PreparedStatement statement = connection.prepareStatement(sql)) {
+				statement.setObject(1, cutoff);
+				statement.setInt(2, chunkSize);
+
+				if (target.getReturning() == null) {
+					deleted = statement.executeUpdate();
+				} else {
+					try (ResultSet rows = statement.executeQuery()) {
+						while (rows.next()) {
+							target.getOnDeleted().processRow(rows);
+							deleted++;
+						}
+					}
+				}
+			}
+
+			reclaimed += deleted;
+			if (deleted < chunkSize) {
+				break;
+			}
+		}
+
+		meterRegistry.counter("expiry.sweep.rows", "table", target.getTable()).increment(reclaimed);
+		Timer.builder("expiry.sweep.duration")
+				.tag("table", target.getTable())
+				.register(meterRegistry)
+				.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+
+		if (reclaimed > 0) {
+			log.debug("Swept {} expired rows from {}", reclaimed, target.getTable());
+		}
+	}
+
+	private boolean isPostgres(Connection connection) throws SQLException {
+		if (postgres == null) {
+			String database = connection.getMetaData().getDatabaseProductName();
+			postgres = "PostgreSQL".equals(database);
+			if (!postgres) {
+				log.info("Expiry sweeps need PostgreSQL, not {}; expired rows will not be swept", database);
+			}
+		}
+		return postgres;
+	}
+
+	private static boolean advisoryLock(Connection connection, String sql) throws SQLException {
+		try (PreparedStatement statement = connection.prepareStatement(sql)) {
+			statement.setLong(1, LOCK_KEY);
+			try (ResultSet result = statement.executeQuery()) {
+				return result.next() && result.getBoolean(1);
+			}
+		}
+	}
+}
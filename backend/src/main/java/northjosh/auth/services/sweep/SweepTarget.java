@@ -0,0 +1,29 @@
+package northjosh.auth.services.sweep;
+
+import java.util.function.Supplier;
+import lombok.Builder;
+import lombok.Value;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+/** A table whose rows expire by one indexed timestamp column, as registered with {@link ExpirySweeper}. */
+@Value
+@Builder
+public class SweepTarget {
+	String table;
+	String idColumn;
+	String timestampColumn;
+
+	/** Rows with a timestamp before this are expired; evaluated once per sweep. */
+	Supplier<Object> cutoff;
+
+	/** Columns to return for each deleted row, or null when nothing needs to hear about them. */
+	String returning;
+
+	RowCallbackHandler onDeleted;
+
+	String deleteSql() {
+		String sql = "delete from %1$s where %2$s in (select %2$s from %1$s where %3$s < ? order by %3$s limit ?)"
+				.formatted(table, idColumn, timestampColumn);
+		return returning == null ? sql : sql + " returning " + returning;
+	}
+}
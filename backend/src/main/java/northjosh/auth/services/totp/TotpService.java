@@ -4,14 +4,14 @@ import com.warrenstrange.googleauth.GoogleAuthenticator;
 import com.warrenstrange.googleauth.GoogleAuthenticatorKey;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
-import northjosh.auth.repo.user.User;
+import northjosh.auth.services.user.UserSnapshot;
 import org.springframework.stereotype.Service;
 
 @Service
 public class TotpService {
 	private final GoogleAuthenticator gAuth = new GoogleAuthenticator();
 
-	public boolean verifyCode(User user, int code) {
+	public boolean verifyCode(UserSnapshot user, int code) {
 		return gAuth.authorize(user.getTotpSecret(), code);
 	}
 
@@ -29,7 +29,7 @@ public class TotpService {
 				"otpauth://totp/%s:%s?secret=%s&issuer=%s", encodedIssuer, encodedEmail, secret, encodedIssuer);
 	}
 
-	public boolean isBackupCodeValid(User user, String code) {
+	public boolean isBackupCodeValid(UserSnapshot user, String code) {
 		return false;
 	}
 }
@@ -1,30 +1,45 @@
 package northjosh.auth.services.user;
 
 import com.yubico.webauthn.RegistrationResult;
+import jakarta.persistence.NoResultException;
 import jakarta.transaction.Transactional;
-import java.util.Map;
+import java.util.Base64;
+import java.util.List;
+import java.util.Optional;
+import northjosh.auth.dto.mapper.UserMapper;
 import northjosh.auth.exceptions.WebAuthnException;
 import northjosh.auth.repo.user.User;
 import northjosh.auth.repo.user.UserAdapter;
 import northjosh.auth.repo.user.UserRepo;
+import northjosh.auth.repo.webauthn.CredentialListing;
 import northjosh.auth.repo.webauthn.WebAuthnCredential;
-import org.modelmapper.ModelMapper;
+import northjosh.auth.repo.webauthn.WebAuthnCredentialRepo;
 import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 @Service
 @Transactional
 public class UserService implements UserDetailsService {
 
 	private final UserRepo userRepo;
-	private final ModelMapper modelMapper;
-
-	public UserService(UserRepo userRepo, ModelMapper modelMapper) {
+	private final WebAuthnCredentialRepo webAuthnCredentialRepo;
+	private final UserMapper userMapper;
+	private final UserSnapshotCache snapshotCache;
+
+	public UserService(
+			UserRepo userRepo,
+			WebAuthnCredentialRepo webAuthnCredentialRepo,
+			UserMapper userMapper,
+			UserSnapshotCache snapshotCache) {
 		this.userRepo = userRepo;
-		this.modelMapper = modelMapper;
+		this.webAuthnCredentialRepo = webAuthnCredentialRepo;
+		this.userMapper = userMapper;
+		this.snapshotCache = snapshotCache;
 	}
 
 	@Override
@@ -38,56 +53,100 @@ public class UserService implements UserDetailsService {
 				.orElseThrow(() -> new EmptyResultDataAccessException("User with email " + email + " not found", 1));
 	}
 
-	public User updateUser(Map<String, Object> updates) {
-		User user = get(updates.get("email").toString());
+	/** Cached, read-only view of a user; use {@link #get} for anything that writes. */
+	public UserSnapshot snapshot(String email) throws EmptyResultDataAccessException {
+		UserSnapshot snapshot = snapshotCache.get(email, key -> UserSnapshot.of(userRepo.findRowsByEmail(key)));
+
+		if (snapshot == null) {
+			throw new EmptyResultDataAccessException("User with email " + email + " not found", 1);
+		}
+		return snapshot;
+	}
+
+	public Optional<String> findEmailByUserHandle(byte[] userHandle) {
+		return Optional.ofNullable(snapshotCache.getEmail(
+				userHandle, handle -> userRepo.findEmailByUserId(handle).orElse(null)));
+	}
+
+	/** A reference for associating other entities with the user, without loading it. */
+	public User reference(UserSnapshot snapshot) {
+		return userRepo.getReferenceById(snapshot.getId());
+	}
+
+	public User save(User user) {
+		User saved = userRepo.save(user);
+		evict(saved.getEmail());
+		return saved;
+	}
+
+	public User updateUser(String email, UserUpdate update) {
+		User user = get(email);
 
-		modelMapper.map(updates, user);
+		userMapper.apply(update, user);
 
-		return userRepo.save(user);
+		return save(user);
 	}
 
 	public void deleteUser(String email) {
 		User existing = get(email);
 		userRepo.delete(existing);
+		evict(email);
+		snapshotCache.invalidateHandle(existing.getUserId());
 	}
 
-	public User findUserByCredentialId(String credentialId) {
-		return userRepo.findAll().stream()
-				.filter(user -> user.getCredentials().stream().anyMatch(cred -> java.util.Base64.getUrlEncoder()
-						.withoutPadding()
-						.encodeToString(cred.getCredentialId())
-						.equals(credentialId)))
-				.findFirst()
+	/**
+	 * Drops the cached snapshot now and again once the surrounding transaction commits, so a read that
+	 * races the commit cannot leave the old state cached.
+	 */
+	public void evict(String email) {
+		snapshotCache.invalidate(email);
+
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+				@Override
+				public void afterCommit() {
+					snapshotCache.invalidate(email);
+				}
+			});
+		}
+	}
+
+	public String findEmailByCredentialId(String credentialId) {
+		byte[] id;
+		try {
+			id = Base64.getUrlDecoder().decode(credentialId);
+		} catch (IllegalArgumentException e) {
+			throw new WebAuthnException("Credentials not Found.");
+		}
+
+		return webAuthnCredentialRepo
+				.findEmailByCredentialId(id)
 				.orElseThrow(() -> new WebAuthnException("Credentials not Found."));
 	}
 
+	public List<CredentialListing> listCredentials(String email) {
+		return webAuthnCredentialRepo.findListingsByEmail(email);
+	}
+
 	public void addCredential(String email, RegistrationResult result) {
-		User user = get(email);
+		UserSnapshot user = snapshot(email);
 
 		WebAuthnCredential cred = WebAuthnCredential.builder()
-				.user(user)
+				.user(reference(user))
 				.credentialId(result.getKeyId().getId().getBytes())
 				.publicKeyCose(result.getPublicKeyCose().getBytes())
 				.signatureCount(result.getSignatureCount())
-				.userHandle(user.getUserId())
+				.userHandle(user.getUserId().getBytes())
 				.build();
 
-		user.getCredentials().add(cred);
-
-		userRepo.save(user);
+		webAuthnCredentialRepo.save(cred);
+		evict(email);
 	}
 
-	public void updateSignatureCount(String credentialId, long newSignatureCount) {
-		userRepo.findAll().stream()
-				.flatMap(user -> user.getCredentials().stream())
-				.filter(cred -> java.util.Base64.getUrlEncoder()
-						.withoutPadding()
-						.encodeToString(cred.getCredentialId())
-						.equals(credentialId))
-				.findFirst()
-				.ifPresent(cred -> {
-					cred.setSignatureCount(newSignatureCount);
-					userRepo.save(cred.getUser());
-				});
+	public void deleteCredential(String email, Long credentialId) {
+		if (webAuthnCredentialRepo.deleteOwned(credentialId, snapshot(email).getId()) == 0) {
+			throw new NoResultException("Credential Not Found");
+		}
+		evict(email);
 	}
 }
@@ -0,0 +1,63 @@
+package northjosh.auth.services.user;
+
+import com.yubico.webauthn.data.ByteArray;
+import java.util.List;
+import lombok.Value;
+import northjosh.auth.repo.user.User;
+import northjosh.auth.repo.user.UserRepo;
+import northjosh.auth.repo.user.UserRow;
+
+/**
+ * Immutable copy of the parts of a {@link User} read on the login, TOTP, push and WebAuthn paths,
+ * safe to share across requests through {@link UserSnapshotCache}. Writes still go through the
+ * managed entity returned by {@link UserService#get}. Binary ids are held as {@link ByteArray}, which
+ * copies on the way in and out, so no caller can change a cached snapshot through them.
+ */
+@Value
+public class UserSnapshot {
+	Long id;
+	ByteArray userId;
+	String email;
+	String firstName;
+	String lastName;
+	String password;
+	String totpSecret;
+	boolean totpEnabled;
+	boolean emailVerified;
+	List<CredentialSummary> credentials;
+
+	@Value
+	public static class CredentialSummary {
+		Long id;
+		ByteArray credentialId;
+	}
+
+	/** Folds the rows of {@link UserRepo#findRowsByEmail}; null when there are none. */
+	public static UserSnapshot of(List<UserRow> rows) {
+		if (rows.isEmpty()) {
+			return null;
+		}
+
+		UserRow user = rows.get(0);
+		List<CredentialSummary> credentials = rows.stream()
+				.filter(row -> row.getCredentialKey() != null)
+				.map(row -> new CredentialSummary(row.getCredentialKey(), new ByteArray(row.getCredentialId())))
+				.toList();
+
+		return new UserSnapshot(
+				user.getId(),
+				new ByteArray(user.getUserId()),
+				user.getEmail(),
+				user.getFirstName(),
+				user.getLastName(),
+				user.getPassword(),
+				user.getTotpSecret(),
+				user.isTotpEnabled(),
+				user.isEmailVerified(),
+				credentials);
+	}
+
+	public boolean hasCredentials() {
+		return !credentials.isEmpty();
+	}
+}
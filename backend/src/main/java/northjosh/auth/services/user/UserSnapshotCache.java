@@ -0,0 +1,61 @@
+package northjosh.auth.services.user;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.function.Function;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Bounded cache of {@link UserSnapshot}s keyed by email, plus an index from WebAuthn user handle to
+ * email. {@link UserService} evicts an email whenever it changes that user; the TTL only bounds how
+ * long a change made on another node can go unseen. Handles never change, so the index is only
+ * invalidated when the user is deleted.
+ */
+@Component
+public class UserSnapshotCache {
+
+	private final Cache<String, UserSnapshot> byEmail;
+	private final Cache<ByteBuffer, String> emailByHandle;
+
+	public UserSnapshotCache(
+			@Value("${auth.user-cache.max-size:10000}") long maxSize,
+			@Value("${auth.user-cache.ttl:60s}") Duration ttl,
+			MeterRegistry meterRegistry) {
+
+		this.byEmail = Caffeine.newBuilder()
+				.maximumSize(maxSize)
+				.expireAfterWrite(ttl)
+				.recordStats()
+				.build();
+		this.emailByHandle = Caffeine.newBuilder()
+				.maximumSize(maxSize)
+				.expireAfterWrite(ttl)
+				.recordStats()
+				.build();
+
+		CaffeineCacheMetrics.monitor(meterRegistry, byEmail, "users.snapshots");
+		CaffeineCacheMetrics.monitor(meterRegistry, emailByHandle, "users.handles");
+	}
+
+	/** Returns null, without caching anything, when {@code loader} does. */
+	public UserSnapshot get(String email, Function<String, UserSnapshot> loader) {
+		return byEmail.get(email, loader);
+	}
+
+	public String getEmail(byte[] userHandle, Function<byte[], String> loader) {
+		return emailByHandle.get(ByteBuffer.wrap(userHandle.clone()), key -> loader.apply(key.array()));
+	}
+
+	public void invalidate(String email) {
+		byEmail.invalidate(email);
+	}
+
+	public void invalidateHandle(byte[] userHandle) {
+		emailByHandle.invalidate(ByteBuffer.wrap(userHandle));
+	}
+}
@@ -0,0 +1,13 @@
+package northjosh.auth.services.user;
+
+import lombok.Builder;
+import lombok.Value;
+
+/** Partial update of a user's profile; only non-null fields are applied. */
+@Value
+@Builder
+public class UserUpdate {
+	String firstName;
+	String lastName;
+	Boolean emailVerified;
+}
@@ -0,0 +1,85 @@
+package northjosh.auth.services.webauthn;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Write-behind buffer for WebAuthn signature counters. Each assertion records its counter here
+ * instead of writing to the database; repeated assertions for one credential coalesce to the highest
+ * value, and the buffer is flushed as a single JDBC batch every {@code
+ * webauthn.signature-count.flush-interval}.
+ *
+ * <p>A buffered value stays visible through {@link #pending} until its batch has committed, so
+ * {@code DatabaseCredentialRepository} always hands the relying party the latest counter and clone
+ * detection keeps working. The UPDATE only ever raises the stored value.
+ */
+@Slf4j
+@Component
+public class SignatureCountWriter {
+
+	private static final String UPDATE =
+			"update webauthn_credentials set signature_count = ? where credential_id = ? and signature_count < ?";
+
+	private final JdbcTemplate jdbcTemplate;
+	private final Map<ByteBuffer, Long> buffer = new ConcurrentHashMap<>();
+
+	private final Counter flushed;
+
+	public SignatureCountWriter(JdbcTemplate jdbcTemplate, MeterRegistry meterRegistry) {
+		this.jdbcTemplate = jdbcTemplate;
+
+		this.flushed = meterRegistry.counter("webauthn.signature-count.flushed");
+		Gauge.builder("webauthn.signature-count.pending", buffer, Map::size).register(meterRegistry);
+	}
+
+	public void record(byte[] credentialId, long signatureCount) {
+		// authenticators without a counter always report 0, which never needs storing
+		if (signatureCount == 0) {
+			return;
+		}
+
+		buffer.merge(ByteBuffer.wrap(credentialId.clone()), signatureCount, Math::max);
+	}
+
+	/** The buffered counter for a credential, or {@code fallback} if it is higher or nothing is buffered. */
+	public long pending(byte[] credentialId, long fallback) {
+		Long buffered = buffer.get(ByteBuffer.wrap(credentialId));
+		return buffered == null ? fallback : Math.max(buffered, fallback);
+	}
+
+	@PreDestroy
+	@Scheduled(fixedDelayString = "${webauthn.signature-count.flush-interval:500}")
+	public synchronized void flush() {
+		if (buffer.isEmpty()) {
+			return;
+		}
+
+		Map<ByteBuffer, Long> batch = new HashMap<>(buffer);
+		List<Object[]> rows = new ArrayList<>(batch.size());
+		batch.forEach((id, count) -> rows.add(new Object[] {count, id.array(), count}));
+
+		try {
+			jdbcTemplate.batchUpdate(UPDATE, rows);
+		} catch (DataAccessException e) {
+			log.warn("Failed to flush {} signature counters, retrying next interval: {}", rows.size(), e.getMessage());
+			return;
+		}
+
+		// a newer value recorded while the batch ran stays buffered for the next flush
+		batch.forEach(buffer::remove);
+		flushed.increment(rows.size());
+	}
+}
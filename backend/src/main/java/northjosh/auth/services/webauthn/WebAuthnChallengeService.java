@@ -7,9 +7,12 @@ import com.yubico.webauthn.data.PublicKeyCredentialRequestOptions;
 import jakarta.persistence.NoResultException;
 import jakarta.transaction.Transactional;
 import java.time.Instant;
+import java.time.OffsetDateTime;
 import northjosh.auth.exceptions.WebAuthnException;
 import northjosh.auth.repo.webauthn.challenge.WebAuthnChallenge;
 import northjosh.auth.repo.webauthn.challenge.WebAuthnChallengeRepo;
+import northjosh.auth.services.sweep.ExpirySweeper;
+import northjosh.auth.services.sweep.SweepTarget;
 import org.springframework.stereotype.Component;
 
 @Component
@@ -18,9 +21,18 @@ public class WebAuthnChallengeService {
 	private final ObjectMapper objectMapper;
 	private final WebAuthnChallengeRepo webAuthnChallengeRepo;
 
-	public WebAuthnChallengeService(ObjectMapper objectMapper, WebAuthnChallengeRepo webAuthnChallengeRepo) {
+	public WebAuthnChallengeService(
+			ObjectMapper objectMapper, WebAuthnChallengeRepo webAuthnChallengeRepo, ExpirySweeper sweeper) {
 		this.objectMapper = objectMapper;
 		this.webAuthnChallengeRepo = webAuthnChallengeRepo;
+
+		// challenges abandoned mid-ceremony were otherwise never removed
+		sweeper.register(SweepTarget.builder()
+				.table("registration_challenges")
+				.idColumn("id")
+				.timestampColumn("expires_at")
+				.cutoff(OffsetDateTime::now)
+				.build());
 	}
 
 	public void store(String email, PublicKeyCredentialCreationOptions options) {
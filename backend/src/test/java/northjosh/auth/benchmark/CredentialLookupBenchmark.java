@@ -0,0 +1,127 @@
+package northjosh.auth.benchmark;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import northjosh.auth.Application;
+import northjosh.auth.services.user.UserService;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Passkey-login owner lookup ({@code UserService.findEmailByCredentialId}) as the user table grows.
+ * Boots the application against the database configured in {@code application.properties} and
+ * seeds {@code users} synthetic users with one credential each, removing them afterwards. Run with
+ * {@code ./mvnw test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=northjosh.auth.benchmark.CredentialLookupBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CredentialLookupBenchmark {
+
+	private static final String EMAIL_PREFIX = "credential-lookup-bench-";
+	private static final int BATCH_SIZE = 10_000;
+
+	@Param({"1000", "100000", "1000000"})
+	public int users;
+
+	private ConfigurableApplicationContext context;
+	private JdbcTemplate jdbc;
+	private UserService userService;
+	private String[] credentialIds;
+
+	@Setup
+	public void setup() {
+		SpringApplication application = new SpringApplication(Application.class);
+		application.setWebApplicationType(WebApplicationType.NONE);
+		context = application.run();
+
+		jdbc = context.getBean(JdbcTemplate.class);
+		userService = context.getBean(UserService.class);
+
+		cleanup();
+		seed();
+	}
+
+	@TearDown
+	public void tearDown() {
+		cleanup();
+		context.close();
+	}
+
+	@Benchmark
+	public Object lookup() {
+		String credentialId = credentialIds[ThreadLocalRandom.current().nextInt(credentialIds.length)];
+		return userService.findEmailByCredentialId(credentialId);
+	}
+
+	private void seed() {
+		credentialIds = new String[Math.min(users, 10_000)];
+
+		for (int from = 0; from < users; from += BATCH_SIZE) {
+			int to = Math.min(from + BATCH_SIZE, users);
+
+			List<Object[]> userRows = new ArrayList<>(to - from);
+			for (int i = from; i < to; i++) {
+				userRows.add(new Object[] {"Bench", "User", EMAIL_PREFIX + i + "@example.com", handle(i), "x"});
+			}
+			jdbc.batchUpdate(
+					"insert into users (first_name, last_name, email, user_id, password, totp_enabled, email_verified)"
+							+ " values (?, ?, ?, ?, ?, false, false)",
+					userRows);
+
+			List<Object[]> credentialRows = new ArrayList<>(to - from);
+			for (int i = from; i < to; i++) {
+				byte[] credentialId = credentialId(i);
+				credentialRows.add(
+						new Object[] {credentialId, new byte[77], handle(i), EMAIL_PREFIX + i + "@example.com"});
+
+				if (i < credentialIds.length) {
+					credentialIds[i] = Base64.getUrlEncoder().withoutPadding().encodeToString(credentialId);
+				}
+			}
+			jdbc.batchUpdate(
+					"insert into webauthn_credentials (credential_id, public_key_cose, signature_count, user_handle, user_id)"
+							+ " select ?, ?, 0, ?, id from users where email = ?",
+					credentialRows);
+		}
+
+		jdbc.execute("analyze users");
+		jdbc.execute("analyze webauthn_credentials");
+	}
+
+	private void cleanup() {
+		jdbc.update(
+				"delete from webauthn_credentials where user_id in (select id from users where email like ?)",
+				EMAIL_PREFIX + "%");
+		jdbc.update("delete from users where email like ?", EMAIL_PREFIX + "%");
+	}
+
+	private static byte[] handle(int i) {
+		return ByteBuffer.allocate(32).putLong(0xBE_4C_4D_A4L).putLong(i).array();
+	}
+
+	private static byte[] credentialId(int i) {
+		return ByteBuffer.allocate(16).putLong(0xC4_ED_1DL).putLong(i).array();
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder()
+						.include(CredentialLookupBenchmark.class.getSimpleName())
+						.build())
+				.run();
+	}
+}
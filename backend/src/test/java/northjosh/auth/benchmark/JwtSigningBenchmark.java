@@ -0,0 +1,78 @@
+package northjosh.auth.benchmark;
+
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.security.Keys;
+import java.security.Key;
+import java.security.KeyPair;
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Sign and verify cost of an access token under each algorithm {@code jwt.keys.algorithm} accepts.
+ * Run with {@code ./mvnw test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=northjosh.auth.benchmark.JwtSigningBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtSigningBenchmark {
+
+	@Param({"HS256", "ES256"})
+	public String algorithm;
+
+	private SignatureAlgorithm signatureAlgorithm;
+	private Key signingKey;
+	private JwtParser parser;
+	private String token;
+
+	@Setup
+	public void setup() {
+		signatureAlgorithm = SignatureAlgorithm.forName(algorithm);
+
+		Key verificationKey;
+		if (signatureAlgorithm.isHmac()) {
+			signingKey = Keys.secretKeyFor(signatureAlgorithm);
+			verificationKey = signingKey;
+		} else {
+			KeyPair pair = Keys.keyPairFor(signatureAlgorithm);
+			signingKey = pair.getPrivate();
+			verificationKey = pair.getPublic();
+		}
+
+		parser = Jwts.parserBuilder().setSigningKey(verificationKey).build();
+		token = sign();
+	}
+
+	@Benchmark
+	public String sign() {
+		return Jwts.builder()
+				.setHeaderParam("kid", "benchmark")
+				.setClaims(Map.of("type", "access", "email", "test@example.com"))
+				.setIssuedAt(new Date())
+				.setExpiration(new Date(System.currentTimeMillis() + 60 * 60 * 1000))
+				.signWith(signingKey, signatureAlgorithm)
+				.compact();
+	}
+
+	@Benchmark
+	public Object verify() {
+		return parser.parseClaimsJws(token).getBody();
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder()
+						.include(JwtSigningBenchmark.class.getSimpleName())
+						.build())
+				.run();
+	}
+}
@@ -0,0 +1,153 @@
+package northjosh.auth.benchmark;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import northjosh.auth.dto.SignUpDto;
+import northjosh.auth.dto.UserDto;
+import northjosh.auth.dto.mapper.PushAuthMapper;
+import northjosh.auth.dto.mapper.PushAuthMapperImpl;
+import northjosh.auth.dto.mapper.UserMapper;
+import northjosh.auth.dto.mapper.UserMapperImpl;
+import northjosh.auth.dto.response.PushAuthDto;
+import northjosh.auth.repo.pushauth.PushAuth;
+import northjosh.auth.repo.user.User;
+import northjosh.auth.services.otp.PushAttempt;
+import northjosh.auth.services.user.UserUpdate;
+import org.modelmapper.ModelMapper;
+import org.modelmapper.PropertyMap;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Reflective ModelMapper, configured as the application used to configure it, against the
+ * generated MapStruct mappers for the conversions on the signup, /auth/me, /push/get and
+ * verify-email paths. Run with {@code ./mvnw test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=northjosh.auth.benchmark.MappingBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MappingBenchmark {
+
+	private ModelMapper modelMapper;
+	private UserMapper userMapper;
+	private PushAuthMapper pushAuthMapper;
+
+	private User user;
+	private SignUpDto signUp;
+	private PushAuth attempt;
+	private PushAttempt pendingAttempt;
+	private UserUpdate update;
+	private Map<String, Object> updates;
+
+	@Setup
+	public void setup() {
+		modelMapper = new ModelMapper();
+		modelMapper.getConfiguration().setSkipNullEnabled(true);
+		modelMapper.addMappings(new PropertyMap<PushAuth, PushAuthDto>() {
+			@Override
+			protected void configure() {
+				map().setRequestId(source.getRequestId());
+				map().setCreatedAt(source.getCreatedAt());
+				using(ctx -> {
+							User user = ((PushAuth) ctx.getSource()).getUser();
+							return user != null ? user.getEmail() : null;
+						})
+						.map(source, destination.getEmail());
+			}
+		});
+
+		userMapper = new UserMapperImpl();
+		pushAuthMapper = new PushAuthMapperImpl();
+
+		user = new User();
+		user.setId(42L);
+		user.setFirstName("Test");
+		user.setLastName("User");
+		user.setEmail("test@example.com");
+		user.setEmailVerified(true);
+
+		signUp = new SignUpDto();
+		signUp.setFirstName("Test");
+		signUp.setLastName("User");
+		signUp.setEmail("test@example.com");
+		signUp.setPassword("password");
+
+		attempt = new PushAuth();
+		attempt.setRequestId("8b0e5f1c-request");
+		attempt.setOtp("123456");
+		attempt.setUser(user);
+		attempt.setCreatedAt(LocalDateTime.now());
+
+		pendingAttempt = new PushAttempt(
+				"8b0e5f1c-request",
+				"123456",
+				"0f1e2d3c4b5a69788796a5b4c3d2e1f0",
+				42L,
+				"test@example.com",
+				null,
+				attempt.getCreatedAt(),
+				Instant.now().plusSeconds(120));
+
+		update = UserUpdate.builder().emailVerified(true).build();
+		updates = Map.of("email", "test@example.com", "emailVerified", true);
+	}
+
+	@Benchmark
+	public UserDto userToDtoModelMapper() {
+		return modelMapper.map(user, UserDto.class);
+	}
+
+	@Benchmark
+	public UserDto userToDtoGenerated() {
+		return userMapper.toDto(user);
+	}
+
+	@Benchmark
+	public User signUpModelMapper() {
+		User created = new User();
+		modelMapper.map(signUp, created);
+		return created;
+	}
+
+	@Benchmark
+	public User signUpGenerated() {
+		return userMapper.toUser(signUp);
+	}
+
+	@Benchmark
+	public PushAuthDto pushAuthModelMapper() {
+		return modelMapper.map(attempt, PushAuthDto.class);
+	}
+
+	@Benchmark
+	public PushAuthDto pushAuthGenerated() {
+		return pushAuthMapper.toDto(pendingAttempt);
+	}
+
+	@Benchmark
+	public User updateModelMapper() {
+		modelMapper.map(updates, user);
+		return user;
+	}
+
+	@Benchmark
+	public User updateGenerated() {
+		userMapper.apply(update, user);
+		return user;
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder()
+						.include(MappingBenchmark.class.getSimpleName())
+						.build())
+				.run();
+	}
+}
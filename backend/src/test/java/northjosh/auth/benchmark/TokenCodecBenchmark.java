@@ -0,0 +1,98 @@
+package northjosh.auth.benchmark;
+
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.security.Keys;
+import java.time.Instant;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import javax.crypto.SecretKey;
+import northjosh.auth.services.jwt.CompactTokenCodec;
+import northjosh.auth.services.jwt.SigningKeyRing;
+import northjosh.auth.services.jwt.TokenClaims;
+import northjosh.auth.services.jwt.TokenType;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Minting and reading an access token through {@link CompactTokenCodec} versus jjwt. Run with the
+ * GC profiler to see allocation per operation: {@code ./mvnw test-compile exec:java
+ * -Dexec.classpathScope=test -Dexec.mainClass=northjosh.auth.benchmark.TokenCodecBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TokenCodecBenchmark {
+
+	private static final String EMAIL = "test@example.com";
+
+	private final CompactTokenCodec codec = new CompactTokenCodec();
+
+	private SigningKeyRing.ActiveKey key;
+	private List<SigningKeyRing.ActiveKey> keys;
+	private JwtParser parser;
+	private String token;
+
+	@Setup
+	public void setup() {
+		SecretKey secret = Keys.secretKeyFor(SignatureAlgorithm.HS256);
+		key = new SigningKeyRing.ActiveKey(
+				"benchmark",
+				SignatureAlgorithm.HS256,
+				secret,
+				secret,
+				Instant.now(),
+				Instant.now(),
+				Instant.now().plusSeconds(3600),
+				CompactTokenCodec.encodedHeader("benchmark", SignatureAlgorithm.HS256.getValue()));
+		keys = List.of(key);
+		parser = Jwts.parserBuilder().setSigningKey(secret).build();
+		token = codecMint();
+	}
+
+	@Benchmark
+	public String jjwtMint() {
+		long now = System.currentTimeMillis();
+		return Jwts.builder()
+				.setHeaderParam("kid", key.getKid())
+				.setClaims(Map.of("type", TokenType.ACCESS.getValue(), "email", EMAIL))
+				.setId(UUID.randomUUID().toString())
+				.setIssuedAt(new Date(now))
+				.setExpiration(new Date(now + 60 * 60 * 1000))
+				.signWith(key.getSigningKey(), key.getAlgorithm())
+				.compact();
+	}
+
+	@Benchmark
+	public String codecMint() {
+		long now = Instant.now().getEpochSecond();
+		return codec.encode(key, TokenType.ACCESS, EMAIL, UUID.randomUUID().toString(), null, now, now + 3600);
+	}
+
+	@Benchmark
+	public Object jjwtRead() {
+		return parser.parseClaimsJws(token).getBody();
+	}
+
+	@Benchmark
+	public TokenClaims codecRead() {
+		return codec.decode(token, keys);
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder()
+						.include(TokenCodecBenchmark.class.getSimpleName())
+						.addProfiler("gc")
+						.build())
+				.run();
+	}
+}
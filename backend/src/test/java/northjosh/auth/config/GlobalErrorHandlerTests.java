@@ -0,0 +1,28 @@
+package northjosh.auth.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import northjosh.auth.exceptions.ServiceBusyException;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.ServletWebRequest;
+
+class GlobalErrorHandlerTests {
+
+	private final GlobalErrorHandler handler = new GlobalErrorHandler();
+
+	@Test
+	void aBusyServiceIsA503WithRetryAfterAndNoSession() {
+		MockHttpServletRequest request = new MockHttpServletRequest("POST", "/auth/login");
+
+		ResponseEntity<Object> response =
+				handler.handleServiceBusyException(new ServiceBusyException("busy"), new ServletWebRequest(request));
+
+		assertThat(response.getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+		assertThat(response.getHeaders().getFirst(HttpHeaders.RETRY_AFTER)).isEqualTo("1");
+		assertThat(request.getSession(false)).isNull();
+	}
+}
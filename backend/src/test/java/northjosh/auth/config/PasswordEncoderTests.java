@@ -0,0 +1,40 @@
+package northjosh.auth.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+class PasswordEncoderTests {
+
+	@Test
+	void onlyHashesBelowTheConfiguredCostAreUpgraded() {
+		PasswordEncoder encoder = encoder(5, false);
+
+		assertThat(encoder.upgradeEncoding("{bcrypt}" + new BCryptPasswordEncoder(4).encode("secret")))
+				.isTrue();
+		assertThat(encoder.upgradeEncoding(encoder.encode("secret"))).isFalse();
+		assertThat(encoder.upgradeEncoding("{bcrypt}" + new BCryptPasswordEncoder(6).encode("secret")))
+				.isFalse();
+	}
+
+	@Test
+	void calibrationDoesNotChangeTheCost() {
+		// generous enough that calibration would settle well above the configured cost
+		PasswordEncoder encoder = encoder(4, true);
+
+		assertThat(encoder.encode("secret")).startsWith("{bcrypt}$2a$04$");
+	}
+
+	@Test
+	void calibrationStaysWithinItsBounds() {
+		assertThat(BCryptCostCalibrator.calibrate(Duration.ZERO, 4, 6)).isEqualTo(4);
+		assertThat(BCryptCostCalibrator.calibrate(Duration.ofMinutes(1), 4, 6)).isEqualTo(6);
+	}
+
+	private static PasswordEncoder encoder(int cost, boolean calibrate) {
+		return new SecurityConfig().passwordEncoder(cost, calibrate, Duration.ofMinutes(1), 4, 6);
+	}
+}
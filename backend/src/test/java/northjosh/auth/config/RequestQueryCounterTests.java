@@ -0,0 +1,127 @@
+package northjosh.auth.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.search.Search;
+import northjosh.auth.services.jwt.JwtService;
+import northjosh.auth.services.user.UserService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+/**
+ * Statements issued by the hot endpoints, against the test user {@link DataLoader} creates and with
+ * its snapshot evicted, so each count is a cold one. Strict mode would fail a request over {@code
+ * auth.queries.per-request-limit} outright; these pin the exact numbers below it.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class RequestQueryCounterTests {
+
+	private static final String EMAIL = "test@example.com";
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private JwtService jwtService;
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	@Autowired
+	private UserService userService;
+
+	@BeforeEach
+	void setUp() {
+		userService.evict(EMAIL);
+	}
+
+	@Test
+	void me() throws Exception {
+		mockMvc.perform(get("/auth/me").header(HttpHeaders.AUTHORIZATION, bearer()))
+				.andExpect(status().isOk());
+
+		// the user snapshot, one query
+		assertThat(queries("/auth/me")).isEqualTo(1);
+	}
+
+	@Test
+	void login() throws Exception {
+		mockMvc.perform(post("/auth/login")
+						.contentType(MediaType.APPLICATION_JSON)
+						.content("{\"email\":\"" + EMAIL + "\",\"password\":\"password123\"}"))
+				.andExpect(status().isOk());
+
+		// the user snapshot; TOTP is on, so no refresh token family is written yet
+		assertThat(queries("/auth/login")).isEqualTo(1);
+	}
+
+	@Test
+	void pushAttemptsPage() throws Exception {
+		for (int i = 0; i < 3; i++) {
+			mockMvc.perform(post("/push/generate")
+							.contentType(MediaType.APPLICATION_JSON)
+							.content("{\"email\":\"" + EMAIL + "\"}"))
+					.andExpect(status().isOk());
+		}
+
+		mockMvc.perform(get("/push/get").header(HttpHeaders.AUTHORIZATION, bearer()))
+				.andExpect(status().isOk());
+
+		// one page query with the user joined, however many attempts are pending
+		assertThat(queries("/push/get")).isEqualTo(1);
+	}
+
+	@Test
+	void registrationOptions() throws Exception {
+		mockMvc.perform(post("/webauthn/register/options").header(HttpHeaders.AUTHORIZATION, bearer()))
+				.andExpect(status().isOk());
+
+		// the user snapshot, then the challenge: the lookup deleteByEmail does first, and the insert
+		assertThat(queries("/webauthn/register/options")).isEqualTo(3);
+	}
+
+	@Test
+	void authenticationOptions() throws Exception {
+		mockMvc.perform(post("/webauthn/auth/options")
+						.contentType(MediaType.APPLICATION_JSON)
+						.content("{\"email\":\"" + EMAIL + "\"}"))
+				.andExpect(status().isOk());
+
+		// as for registration; the test user has no credentials, so nothing else is looked up
+		assertThat(queries("/webauthn/auth/options")).isEqualTo(3);
+	}
+
+	@Test
+	void credentials() throws Exception {
+		mockMvc.perform(get("/webauthn/credentials").header(HttpHeaders.AUTHORIZATION, bearer()))
+				.andExpect(status().isOk());
+
+		// one projection query joined on the email, without loading the user
+		assertThat(queries("/webauthn/credentials")).isEqualTo(1);
+	}
+
+	private String bearer() {
+		return "Bearer " + jwtService.generateAccessToken(EMAIL);
+	}
+
+	private double queries(String uri) {
+		return Search.in(meterRegistry)
+				.name("http.server.requests.queries")
+				.tag("uri", uri)
+				.summary()
+				.max();
+	}
+}
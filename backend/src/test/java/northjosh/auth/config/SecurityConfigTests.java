@@ -0,0 +1,58 @@
+package northjosh.auth.config;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import northjosh.auth.services.jwt.JwtService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class SecurityConfigTests {
+
+	private static final String EMAIL = "test@example.com";
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private JwtService jwtService;
+
+	@Test
+	void anAccessTokenReachesTheControllerAsItsClaims() throws Exception {
+		mockMvc.perform(get("/auth/me")
+						.header(HttpHeaders.AUTHORIZATION, bearer(jwtService.generateAccessToken(EMAIL))))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.data.email").value(EMAIL));
+	}
+
+	@Test
+	void onlyAccessTokensOpenProtectedRoutes() throws Exception {
+		mockMvc.perform(get("/auth/me")
+						.header(HttpHeaders.AUTHORIZATION, bearer(jwtService.generatePendingToken(EMAIL))))
+				.andExpect(status().isForbidden());
+		mockMvc.perform(get("/auth/me").header(HttpHeaders.AUTHORIZATION, bearer("not.a.token")))
+				.andExpect(status().isUnauthorized());
+		mockMvc.perform(get("/auth/me")).andExpect(status().isUnauthorized());
+	}
+
+	@Test
+	void aLoggedInUserCannotReadMetricsOnTheApplicationPort() throws Exception {
+		String accessToken = jwtService.generateAccessToken(EMAIL);
+
+		mockMvc.perform(get("/actuator/metrics").header(HttpHeaders.AUTHORIZATION, bearer(accessToken)))
+				.andExpect(status().isNotFound());
+	}
+
+	private static String bearer(String token) {
+		return "Bearer " + token;
+	}
+}
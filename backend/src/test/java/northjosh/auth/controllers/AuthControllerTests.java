@@ -0,0 +1,85 @@
+package northjosh.auth.controllers;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.Jwts;
+import java.time.Instant;
+import java.util.Date;
+import java.util.UUID;
+import northjosh.auth.exceptions.WebAuthnException;
+import northjosh.auth.services.auth.RefreshTokenService;
+import northjosh.auth.services.jwt.JwtService;
+import northjosh.auth.services.jwt.SigningKeyRing;
+import northjosh.auth.services.jwt.TokenType;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class AuthControllerTests {
+
+	private static final String EMAIL = "test@example.com";
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private RefreshTokenService refreshTokenService;
+
+	@Autowired
+	private SigningKeyRing keyRing;
+
+	@Autowired
+	private JwtService jwtService;
+
+	@Test
+	void logoutWithAnExpiredAccessTokenEndsTheLogin() throws Exception {
+		String refreshToken = refreshTokenService.issue(EMAIL);
+
+		mockMvc.perform(post("/auth/logout")
+						.header(HttpHeaders.AUTHORIZATION, "Bearer " + expiredAccessToken())
+						.contentType(MediaType.APPLICATION_JSON)
+						.content(refreshBody(refreshToken)))
+				.andExpect(status().isOk());
+
+		assertThatThrownBy(() -> refreshTokenService.refresh(refreshToken)).isInstanceOf(WebAuthnException.class);
+	}
+
+	@Test
+	void aMalformedCursorIsABadRequest() throws Exception {
+		mockMvc.perform(get("/auth/sessions")
+						.param("cursor", "not base64!")
+						.header(HttpHeaders.AUTHORIZATION, "Bearer " + jwtService.generateAccessToken(EMAIL)))
+				.andExpect(status().isBadRequest());
+	}
+
+	private String expiredAccessToken() {
+		SigningKeyRing.ActiveKey key = keyRing.current();
+		Instant issuedAt = Instant.now().minusSeconds(7200);
+
+		return Jwts.builder()
+				.setHeaderParam(JwsHeader.KEY_ID, key.getKid())
+				.claim("type", TokenType.ACCESS.getValue())
+				.claim("email", EMAIL)
+				.setId(UUID.randomUUID().toString())
+				.setIssuedAt(Date.from(issuedAt))
+				.setExpiration(Date.from(issuedAt.plusSeconds(3600)))
+				.signWith(key.getSigningKey(), key.getAlgorithm())
+				.compact();
+	}
+
+	private static String refreshBody(String refreshToken) {
+		return "{\"refreshToken\":\"" + refreshToken + "\"}";
+	}
+}
@@ -0,0 +1,229 @@
+package northjosh.auth.controllers;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.awaitility.Awaitility.await;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import northjosh.auth.exceptions.ConnectionLimitException;
+import northjosh.auth.services.events.LocalPushEventBus;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+class SseEmittersTests {
+
+	private static final String CHANNEL = "login:abc";
+
+	private SseEmitters emitters;
+
+	@BeforeEach
+	void setUp() {
+		emitters = emitters(new SimpleMeterRegistry());
+	}
+
+	@AfterEach
+	void tearDown() {
+		emitters.shutdown();
+	}
+
+	@Test
+	void aReconnectIsSentOnlyWhatItMissed() {
+		Capture first = connect(emitters, null);
+		publish(emitters, 3);
+		await().until(() -> first.ids().size() == 4);
+
+		Capture again = connect(emitters, first.ids().get(2));
+
+		await().until(() -> again.ids().size() == 1);
+		assertThat(again.ids()).containsExactly(first.ids().get(3));
+	}
+
+	@Test
+	void anIdFromAnotherNodeIsResyncedWithEverythingBuffered() {
+		SseEmitters other = emitters(new SimpleMeterRegistry());
+		try {
+			Capture elsewhere = connect(other, null);
+			publish(other, 5);
+			await().until(() -> elsewhere.ids().size() == 6);
+
+			publish(emitters, 3);
+			Capture moved = connect(emitters, elsewhere.ids().get(2));
+
+			// the same sequence number from another buffer must not skip anything here
+			await().until(() -> moved.ids().size() == 3);
+			assertThat(moved.ids())
+					.extracting(id -> id.substring(id.indexOf(':') + 1))
+					.containsExactly("1", "2", "3");
+			assertThat(moved.ids().get(0))
+					.doesNotStartWith(elsewhere.ids().get(0).split(":")[0]);
+		} finally {
+			other.shutdown();
+		}
+	}
+
+	@Test
+	void quietConnectionsGetHeartbeatsAndSubscribersTheirTick() {
+		SseEmitters beating = emitters(new SimpleMeterRegistry(), 20, 100, 10);
+		try {
+			Capture channel = connect(beating, null);
+			Capture listener = new Capture();
+			beating.track(listener, "127.0.0.1", 0);
+			beating.subscribe(listener, () -> SseEmitter.event().name("tick").data("{}"));
+
+			await().until(() -> channel.events().stream()
+							.filter(event -> event.startsWith(":keep-alive"))
+							.count()
+					>= 2);
+			await().until(() -> listener.events().stream()
+							.filter(event -> event.contains("event:tick"))
+							.count()
+					>= 2);
+		} finally {
+			beating.shutdown();
+		}
+	}
+
+	@Test
+	void theAttemptsSnapshotComesBeforeAnyLiveEvent() {
+		Capture capture = new Capture();
+		emitters.track(capture, "127.0.0.1", 0);
+
+		emitters.attach("attempts:user", capture, () -> SseEmitter.event()
+				.name("attempts")
+				.data("[]"));
+		emitters.publish("attempts:user", "attempt-created", 1);
+
+		await().until(() -> capture.events().size() == 2);
+		assertThat(capture.events().get(0)).contains("event:attempts");
+		assertThat(capture.events().get(1)).contains("event:attempt-created");
+	}
+
+	@Test
+	void connectionsAreCappedPerAddressAndOverall() {
+		SimpleMeterRegistry registry = new SimpleMeterRegistry();
+		SseEmitters capped = emitters(registry, 60_000, 3, 2);
+		try {
+			open(capped, "10.0.0.1");
+			open(capped, "10.0.0.1");
+
+			assertThatThrownBy(() -> open(capped, "10.0.0.1")).isInstanceOf(ConnectionLimitException.class);
+			open(capped, "10.0.0.2");
+			assertThatThrownBy(() -> open(capped, "10.0.0.3")).isInstanceOf(ConnectionLimitException.class);
+
+			assertThat(registry.get("push.sse.rejected")
+							.tag("reason", "address")
+							.counter()
+							.count())
+					.isEqualTo(1);
+			assertThat(registry.get("push.sse.rejected")
+							.tag("reason", "global")
+							.counter()
+							.count())
+					.isEqualTo(1);
+			// three admitted connections, each holding one 2 KiB response buffer
+			assertThat(registry.get("push.sse.buffer.bytes").gauge().value()).isEqualTo(3 * 2048);
+		} finally {
+			capped.shutdown();
+		}
+	}
+
+	@Test
+	void anIdleConnectionIsReapedAndFreesItsSlot() {
+		SimpleMeterRegistry registry = new SimpleMeterRegistry();
+		SseEmitters reaping = emitters(registry, 20, 100, 1);
+		try {
+			MockHttpServletResponse response = new MockHttpServletResponse();
+			reaping.open("sse", 60_000, 50, request("10.0.0.1"), response);
+			assertThat(response.getBufferSize()).isEqualTo(2048);
+
+			await().until(() -> registry.counter("push.sse.reaped").count() == 1);
+			open(reaping, "10.0.0.1");
+		} finally {
+			reaping.shutdown();
+		}
+	}
+
+	private static SseEmitters emitters(SimpleMeterRegistry registry) {
+		return emitters(registry, 60_000, 100, 10);
+	}
+
+	private static SseEmitters emitters(
+			SimpleMeterRegistry registry, long heartbeatInterval, int maxConnections, int maxPerAddress) {
+		return new SseEmitters(
+				new LocalPushEventBus(),
+				new ObjectMapper(),
+				registry,
+				heartbeatInterval,
+				2,
+				32,
+				16_384,
+				100,
+				Duration.ofMinutes(1),
+				maxConnections,
+				maxPerAddress,
+				2048,
+				64,
+				Duration.ofMinutes(2));
+	}
+
+	private static void open(SseEmitters emitters, String address) {
+		emitters.open("sse", 60_000, request(address), new MockHttpServletResponse());
+	}
+
+	private static MockHttpServletRequest request(String address) {
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", "/push/sse");
+		request.setRemoteAddr(address);
+		return request;
+	}
+
+	private static Capture connect(SseEmitters emitters, String lastEventId) {
+		Capture capture = new Capture();
+		emitters.track(capture, "127.0.0.1", 0);
+		emitters.add(CHANNEL, capture, lastEventId);
+		return capture;
+	}
+
+	private static void publish(SseEmitters emitters, int count) {
+		for (int i = 0; i < count; i++) {
+			emitters.publish(CHANNEL, "n", i);
+		}
+	}
+
+	/** An emitter that records what would have been written to the response. */
+	static class Capture extends SseEmitter {
+
+		private final List<String> sent = new CopyOnWriteArrayList<>();
+
+		@Override
+		public void send(SseEventBuilder builder) {
+			send(builder.build());
+		}
+
+		@Override
+		public void send(Set<DataWithMediaType> items) {
+			StringBuilder event = new StringBuilder();
+			items.forEach(item -> event.append(item.getData()));
+			sent.add(event.toString());
+		}
+
+		List<String> events() {
+			return sent;
+		}
+
+		List<String> ids() {
+			return sent.stream()
+					.map(event -> event.lines().findFirst().orElse(""))
+					.map(line -> line.substring("id:".length()))
+					.toList();
+		}
+	}
+}
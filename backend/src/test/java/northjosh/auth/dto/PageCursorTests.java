@@ -0,0 +1,67 @@
+package northjosh.auth.dto;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.List;
+import northjosh.auth.dto.response.PagedContent;
+import northjosh.auth.exceptions.InvalidCursorException;
+import org.junit.jupiter.api.Test;
+
+class PageCursorTests {
+
+	@Test
+	void aCursorRoundTrips() {
+		PageCursor cursor = new PageCursor(LocalDateTime.of(2026, 1, 2, 3, 4, 5, 6000), "id|with|bars");
+
+		assertThat(PageCursor.decode(cursor.encode())).isEqualTo(cursor);
+		assertThat(PageCursor.decode(null)).isNull();
+		assertThat(PageCursor.decode(" ")).isNull();
+	}
+
+	@Test
+	void anythingElseIsAnInvalidCursor() {
+		String noSeparator = encode("2026-01-02T03:04:05");
+		String badTimestamp = encode("yesterday|id");
+
+		assertThatThrownBy(() -> PageCursor.decode("not base64!")).isInstanceOf(InvalidCursorException.class);
+		assertThatThrownBy(() -> PageCursor.decode(noSeparator)).isInstanceOf(InvalidCursorException.class);
+		assertThatThrownBy(() -> PageCursor.decode(badTimestamp)).isInstanceOf(InvalidCursorException.class);
+	}
+
+	@Test
+	void rowsAfterTheCursorAreOrderedByTimeThenId() {
+		LocalDateTime at = LocalDateTime.of(2026, 1, 2, 3, 4);
+		PageCursor cursor = new PageCursor(at, "b");
+
+		assertThat(cursor.precedes(at.plusSeconds(1), "a")).isTrue();
+		assertThat(cursor.precedes(at, "c")).isTrue();
+		assertThat(cursor.precedes(at, "b")).isFalse();
+		assertThat(cursor.precedes(at.minusSeconds(1), "z")).isFalse();
+	}
+
+	@Test
+	void theExtraRowOnlyMarksANextPage() {
+		LocalDateTime at = LocalDateTime.of(2026, 1, 2, 3, 4);
+		List<String> rows = List.of("a", "b", "c");
+
+		PagedContent<String> page = PagedContent.keyset(rows, 2, null, row -> new PageCursor(at, row), row -> row);
+		PagedContent<String> last =
+				PagedContent.keyset(List.of("c"), 2, PageCursor.decode(page.getNextCursor()), row -> null, row -> row);
+
+		assertThat(page.getData()).containsExactly("a", "b");
+		assertThat(PageCursor.decode(page.getNextCursor()).getId()).isEqualTo("b");
+		assertThat(page.isFirst()).isTrue();
+		assertThat(last.getData()).containsExactly("c");
+		assertThat(last.getNextCursor()).isNull();
+		assertThat(last.isHasNextPage()).isFalse();
+		assertThat(last.isFirst()).isFalse();
+	}
+
+	private static String encode(String raw) {
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+	}
+}
@@ -0,0 +1,103 @@
+package northjosh.auth.dto.mapper;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.yubico.webauthn.data.ByteArray;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.List;
+import northjosh.auth.dto.PushAuthResponse;
+import northjosh.auth.dto.SignUpDto;
+import northjosh.auth.dto.UserDto;
+import northjosh.auth.dto.response.PushAuthDto;
+import northjosh.auth.repo.pushauth.ClientInfo;
+import northjosh.auth.repo.user.User;
+import northjosh.auth.services.otp.PushAttempt;
+import northjosh.auth.services.otp.UserAgentParser;
+import northjosh.auth.services.user.UserSnapshot;
+import northjosh.auth.services.user.UserUpdate;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.util.ReflectionTestUtils;
+
+class MapperTests {
+
+	private static final String EMAIL = "test@example.com";
+
+	private final UserMapper userMapper = new UserMapperImpl();
+
+	@Test
+	void aSnapshotWithCredentialsMapsAsWebAuthnEnabled() {
+		UserSnapshot user = new UserSnapshot(
+				1L,
+				new ByteArray(new byte[] {1}),
+				EMAIL,
+				"Test",
+				"User",
+				"hash",
+				"secret",
+				true,
+				true,
+				List.of(new UserSnapshot.CredentialSummary(2L, new ByteArray(new byte[] {2}))));
+
+		UserDto dto = userMapper.toDto(user);
+
+		assertThat(dto.getId()).isEqualTo(1L);
+		assertThat(dto.getEmail()).isEqualTo(EMAIL);
+		assertThat(dto.isTotpEnabled()).isTrue();
+		assertThat(dto.isWebAuthnEnabled()).isTrue();
+	}
+
+	@Test
+	void signUpCopiesOnlyTheProfile() {
+		SignUpDto dto = new SignUpDto();
+		dto.setFirstName("Test");
+		dto.setLastName("User");
+		dto.setEmail(EMAIL);
+		dto.setPassword("password123");
+		dto.setTotpEnabled(true);
+
+		User user = userMapper.toUser(dto);
+
+		assertThat(user.getEmail()).isEqualTo(EMAIL);
+		assertThat(user.isTotpEnabled()).isTrue();
+		// hashed and set by the caller, never copied in the clear
+		assertThat(user.getPassword()).isNull();
+	}
+
+	@Test
+	void anUpdateLeavesUnsetFieldsAlone() {
+		User user = new User();
+		user.setFirstName("Old");
+		user.setLastName("Name");
+
+		userMapper.apply(UserUpdate.builder().firstName("New").build(), user);
+
+		assertThat(user.getFirstName()).isEqualTo("New");
+		assertThat(user.getLastName()).isEqualTo("Name");
+	}
+
+	@Test
+	void anAttemptFlattensItsClientInfo() {
+		PushAuthMapper mapper = new PushAuthMapperImpl();
+		ReflectionTestUtils.setField(mapper, "userMapper", userMapper);
+		MockHttpServletRequest request = new MockHttpServletRequest();
+		request.setRemoteAddr("10.0.0.1");
+		request.addHeader(HttpHeaders.USER_AGENT, "Mozilla/5.0 (Windows NT 10.0; Win64; x64) Firefox/120.0");
+		ClientInfo clientInfo = new UserAgentParser(10, new SimpleMeterRegistry()).clientInfo(request);
+		PushAttempt attempt =
+				new PushAttempt("request", "123456", "hash", 1L, EMAIL, clientInfo, LocalDateTime.now(), Instant.now());
+
+		PushAuthDto dto = mapper.toDto(attempt);
+		PushAuthResponse response = mapper.toResponse(
+				attempt, new UserSnapshot(1L, null, EMAIL, "Test", "User", null, null, false, true, List.of()), "key");
+
+		assertThat(dto.getRequestId()).isEqualTo("request");
+		assertThat(dto.getRemoteAddress()).isEqualTo("10.0.0.1");
+		assertThat(dto.getUserAgentFamily()).isEqualTo("Firefox");
+		assertThat(response.getExchangeKey()).isEqualTo("key");
+		assertThat(response.getUser().getEmail()).isEqualTo(EMAIL);
+	}
+}
@@ -0,0 +1,52 @@
+package northjosh.auth.repo.revocation;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class RevokedTokenRepoTests {
+
+	@Autowired
+	private RevokedTokenRepo revokedTokenRepo;
+
+	@Test
+	void onlyOneConcurrentInsertForAJtiSucceeds() throws Exception {
+		Instant expiresAt = Instant.now().plusSeconds(60);
+		Callable<Integer> insert = () -> revokedTokenRepo.insertIfAbsent("grant-jti", expiresAt, Instant.now());
+
+		ExecutorService threads = Executors.newFixedThreadPool(8);
+		List<Future<Integer>> results = new ArrayList<>();
+		try {
+			for (int i = 0; i < 8; i++) {
+				results.add(threads.submit(insert));
+			}
+
+			int inserted = 0;
+			for (Future<Integer> result : results) {
+				inserted += result.get();
+			}
+			assertThat(inserted).isEqualTo(1);
+		} finally {
+			threads.shutdown();
+		}
+
+		assertThat(revokedTokenRepo.existsById("grant-jti")).isTrue();
+	}
+}
@@ -0,0 +1,67 @@
+package northjosh.auth.repo.webauthn;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import northjosh.auth.repo.user.User;
+import northjosh.auth.repo.user.UserRepo;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class WebAuthnCredentialRepoTests {
+
+	@Autowired
+	private UserRepo userRepo;
+
+	@Autowired
+	private WebAuthnCredentialRepo credentialRepo;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Test
+	void aCredentialResolvesToItsOwnerOnly() {
+		for (int i = 0; i < 5; i++) {
+			register("user" + i + "@example.com", new byte[] {(byte) i, 1, 2});
+		}
+
+		assertThat(credentialRepo.findEmailByCredentialId(new byte[] {3, 1, 2})).contains("user3@example.com");
+		assertThat(credentialRepo.findEmailByCredentialId(new byte[] {9, 9, 9})).isEmpty();
+	}
+
+	@Test
+	void theLookupProbesTheCredentialIdIndex() {
+		String plan = jdbcTemplate.queryForObject(
+				"explain select u.email from webauthn_credentials c join users u on u.id = c.user_id"
+						+ " where c.credential_id = ?",
+				String.class,
+				(Object) new byte[] {1});
+
+		// H2 names the index each table is read through, or tableScan when there is none
+		assertThat(plan)
+				.containsPattern("\"c\"\\s*/\\* public\\.\\w+: credential_id = \\?1 \\*/")
+				.doesNotContain("tableScan");
+	}
+
+	private void register(String email, byte[] credentialId) {
+		User user = new User();
+		user.setFirstName("Test");
+		user.setLastName("User");
+		user.setEmail(email);
+		user.setPassword("hash");
+		userRepo.save(user);
+
+		credentialRepo.save(WebAuthnCredential.builder()
+				.user(user)
+				.credentialId(credentialId)
+				.publicKeyCose(new byte[] {0})
+				.userHandle(user.getUserId())
+				.build());
+	}
+}
@@ -0,0 +1,125 @@
+package northjosh.auth.services.auth;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.after;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.yubico.webauthn.data.ByteArray;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.List;
+import northjosh.auth.config.SecurityConfig;
+import northjosh.auth.dto.LoginDto;
+import northjosh.auth.exceptions.WebAuthnException;
+import northjosh.auth.repo.user.UserRepo;
+import northjosh.auth.services.jwt.JwtService;
+import northjosh.auth.services.totp.TotpService;
+import northjosh.auth.services.user.UserService;
+import northjosh.auth.services.user.UserSnapshot;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+class AuthServiceTests {
+
+	private static final String EMAIL = "test@example.com";
+	private static final String PASSWORD = "password123";
+
+	private final UserRepo userRepo = mock(UserRepo.class);
+	private final UserService userService = mock(UserService.class);
+
+	private PasswordEncoder encoder;
+	private PasswordHashingExecutor hasher;
+	private AuthService authService;
+
+	@BeforeEach
+	void setUp() {
+		encoder = new SecurityConfig().passwordEncoder(5, false, Duration.ofMinutes(1), 4, 6);
+		hasher = new PasswordHashingExecutor(encoder, new SimpleMeterRegistry(), 1, 4);
+		authService = new AuthService(
+				userRepo,
+				null,
+				hasher,
+				mock(JwtService.class),
+				mock(TotpService.class),
+				userService,
+				mock(RefreshTokenService.class));
+	}
+
+	@AfterEach
+	void tearDown() {
+		hasher.shutdown();
+	}
+
+	@Test
+	void aHashBelowTheCostIsReplacedAfterLogin() {
+		String outdated = "{bcrypt}" + new BCryptPasswordEncoder(4).encode(PASSWORD);
+		user(outdated);
+
+		authService.login(login(PASSWORD));
+
+		ArgumentCaptor<String> replacement = ArgumentCaptor.forClass(String.class);
+		verify(userRepo, timeout(5000)).replacePassword(eq(1L), eq(outdated), replacement.capture());
+		verify(userService, timeout(5000)).evict(EMAIL);
+		assertThat(replacement.getValue()).startsWith("{bcrypt}$2a$05$");
+		assertThat(encoder.matches(PASSWORD, replacement.getValue())).isTrue();
+	}
+
+	@Test
+	void anUnprefixedLegacyHashStillLogsIn() {
+		user(new BCryptPasswordEncoder(4).encode(PASSWORD));
+
+		authService.login(login(PASSWORD));
+
+		verify(userRepo, timeout(5000)).replacePassword(eq(1L), anyString(), anyString());
+	}
+
+	@Test
+	void aCurrentHashIsLeftAlone() {
+		user(encoder.encode(PASSWORD));
+
+		authService.login(login(PASSWORD));
+
+		verify(userRepo, after(200).never()).replacePassword(anyLong(), anyString(), anyString());
+	}
+
+	@Test
+	void aWrongPasswordIsNeitherAcceptedNorRehashed() {
+		user("{bcrypt}" + new BCryptPasswordEncoder(4).encode(PASSWORD));
+
+		assertThatThrownBy(() -> authService.login(login("wrong"))).isInstanceOf(WebAuthnException.class);
+		verify(userRepo, after(200).never()).replacePassword(anyLong(), anyString(), anyString());
+	}
+
+	private void user(String passwordHash) {
+		when(userService.snapshot(EMAIL))
+				.thenReturn(new UserSnapshot(
+						1L,
+						new ByteArray(new byte[0]),
+						EMAIL,
+						"Test",
+						"User",
+						passwordHash,
+						null,
+						false,
+						true,
+						List.of()));
+	}
+
+	private static LoginDto login(String password) {
+		LoginDto dto = new LoginDto();
+		dto.setEmail(EMAIL);
+		dto.setPassword(password);
+		return dto;
+	}
+}
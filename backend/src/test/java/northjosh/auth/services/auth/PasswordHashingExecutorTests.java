@@ -0,0 +1,79 @@
+package northjosh.auth.services.auth;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import northjosh.auth.exceptions.ServiceBusyException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+class PasswordHashingExecutorTests {
+
+	private final CountDownLatch hashing = new CountDownLatch(1);
+	private final CountDownLatch release = new CountDownLatch(1);
+	private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+	private PasswordHashingExecutor executor;
+
+	@BeforeEach
+	void setUp() {
+		PasswordEncoder encoder = mock(PasswordEncoder.class);
+		when(encoder.encode(any())).thenAnswer(call -> {
+			hashing.countDown();
+			release.await(5, TimeUnit.SECONDS);
+			return "hash";
+		});
+
+		// one thread and one queued task
+		executor = new PasswordHashingExecutor(encoder, registry, 1, 1);
+	}
+
+	@AfterEach
+	void tearDown() {
+		release.countDown();
+		executor.shutdown();
+	}
+
+	@Test
+	void workBeyondTheQueueIsRefusedRatherThanWaitedFor() throws Exception {
+		CompletableFuture<String> running = CompletableFuture.supplyAsync(() -> executor.encode("a"));
+		assertThat(hashing.await(5, TimeUnit.SECONDS)).isTrue();
+		CompletableFuture<String> queued = CompletableFuture.supplyAsync(() -> executor.encode("b"));
+		awaitQueued();
+
+		assertThatThrownBy(() -> executor.encode("c")).isInstanceOf(ServiceBusyException.class);
+		assertThat(registry.counter("auth.password.rejected").count()).isEqualTo(1);
+
+		release.countDown();
+		assertThat(running.get(5, TimeUnit.SECONDS)).isEqualTo("hash");
+		assertThat(queued.get(5, TimeUnit.SECONDS)).isEqualTo("hash");
+	}
+
+	@Test
+	void backgroundRehashIsSkippedWhenFull() throws Exception {
+		CompletableFuture.supplyAsync(() -> executor.encode("a"));
+		assertThat(hashing.await(5, TimeUnit.SECONDS)).isTrue();
+		CompletableFuture.supplyAsync(() -> executor.encode("b"));
+		awaitQueued();
+
+		executor.encodeLater("c", hash -> {});
+
+		assertThat(registry.counter("auth.password.rejected").count()).isEqualTo(1);
+	}
+
+	private void awaitQueued() throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 5000;
+		while (registry.get("auth.password.queue.depth").gauge().value() < 1 && System.currentTimeMillis() < deadline) {
+			Thread.sleep(5);
+		}
+	}
+}
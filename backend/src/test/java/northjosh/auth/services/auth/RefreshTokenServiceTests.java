@@ -0,0 +1,108 @@
+package northjosh.auth.services.auth;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.MalformedJwtException;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import northjosh.auth.exceptions.WebAuthnException;
+import northjosh.auth.repo.refresh.RefreshTokenFamily;
+import northjosh.auth.repo.refresh.RefreshTokenFamilyRepo;
+import northjosh.auth.services.jwt.JwtService;
+import northjosh.auth.services.jwt.TokenClaims;
+import northjosh.auth.services.jwt.TokenType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class RefreshTokenServiceTests {
+
+	private static final String EMAIL = "test@example.com";
+
+	/** Family id to current token id, standing in for {@code refresh_token_families}. */
+	private final Map<String, String> families = new HashMap<>();
+
+	private final Set<String> revoked = new HashSet<>();
+
+	private JwtService jwtService;
+	private RefreshTokenService service;
+
+	@BeforeEach
+	void setUp() {
+		RefreshTokenFamilyRepo familyRepo = mock(RefreshTokenFamilyRepo.class);
+		jwtService = mock(JwtService.class);
+		service = new RefreshTokenService(familyRepo, jwtService);
+
+		when(familyRepo.save(any())).thenAnswer(call -> {
+			RefreshTokenFamily family = call.getArgument(0);
+			families.put(family.getId(), family.getCurrentTokenId());
+			return family;
+		});
+		when(familyRepo.rotate(anyString(), anyString(), anyString(), any())).thenAnswer(call -> {
+			String id = call.getArgument(0);
+			if (revoked.contains(id) || !call.getArgument(1).equals(families.get(id))) {
+				return 0;
+			}
+			families.put(id, call.getArgument(2));
+			return 1;
+		});
+		doAnswer(call -> revoked.add(call.getArgument(0))).when(familyRepo).revoke(anyString());
+
+		// a refresh token is just its claims here; the signature is JwtService's concern
+		when(jwtService.generateRefreshToken(anyString(), anyString(), anyString()))
+				.thenAnswer(call -> call.getArgument(1) + "|" + call.getArgument(2));
+		when(jwtService.parse(anyString())).thenAnswer(call -> {
+			String[] parts = call.<String>getArgument(0).split("\\|");
+			if (parts.length != 2) {
+				throw new MalformedJwtException("not a refresh token");
+			}
+			return new TokenClaims(TokenType.REFRESH, EMAIL, Instant.now().plusSeconds(60), parts[1], parts[0]);
+		});
+	}
+
+	@Test
+	void refreshRotatesTheToken() {
+		String refreshToken = service.issue(EMAIL);
+
+		String next = service.refresh(refreshToken).getRefreshToken();
+
+		assertThat(next).isNotEqualTo(refreshToken);
+		assertThat(service.refresh(next).getRefreshToken()).isNotNull();
+	}
+
+	@Test
+	void refreshAfterLogoutIsRejected() {
+		String refreshToken = service.issue(EMAIL);
+		String rotated = service.refresh(refreshToken).getRefreshToken();
+
+		service.revokeFamily(rotated);
+
+		assertThatThrownBy(() -> service.refresh(rotated)).isInstanceOf(WebAuthnException.class);
+	}
+
+	@Test
+	void logoutNeedsARefreshToken() {
+		service.issue(EMAIL);
+
+		assertThatThrownBy(() -> service.revokeFamily("not-a-token")).isInstanceOf(WebAuthnException.class);
+		assertThat(revoked).isEmpty();
+	}
+
+	@Test
+	void aRevokedRefreshTokenIsRefused() {
+		String refreshToken = service.issue(EMAIL);
+		when(jwtService.parse(refreshToken)).thenThrow(new JwtException("Token has been revoked"));
+
+		assertThatThrownBy(() -> service.refresh(refreshToken)).isInstanceOf(WebAuthnException.class);
+		assertThat(families).containsValue(refreshToken.split("\\|")[1]);
+	}
+}
@@ -0,0 +1,153 @@
+package northjosh.auth.services.events;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.sql.DataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
+
+class PostgresPushEventBusTests {
+
+	/** Each node's pending notifications, standing in for the server's {@code LISTEN} queues. */
+	private final List<BlockingQueue<String>> listeners = new ArrayList<>();
+
+	private final List<PostgresPushEventBus> nodes = new ArrayList<>();
+
+	@AfterEach
+	void tearDown() {
+		nodes.forEach(PostgresPushEventBus::stop);
+	}
+
+	@Test
+	void anEventPublishedOnOneNodeReachesTheOther() throws Exception {
+		PostgresPushEventBus publisher = node();
+		PostgresPushEventBus receiver = node();
+		BlockingQueue<PushEvent> received = new LinkedBlockingQueue<>();
+		receiver.subscribe(received::add);
+
+		publisher.publish(PushEvent.of("login:abc", "login-success", "{\"grant\":\"g\"}"));
+
+		PushEvent event = received.poll(5, TimeUnit.SECONDS);
+		assertThat(event).isNotNull();
+		assertThat(event.getChannel()).isEqualTo("login:abc");
+		assertThat(event.getName()).isEqualTo("login-success");
+		assertThat(event.getData()).isEqualTo("{\"grant\":\"g\"}");
+	}
+
+	@Test
+	void aSlowSubscriberDoesNotHoldUpTheListener() throws Exception {
+		PostgresPushEventBus publisher = node();
+		PostgresPushEventBus receiver = node();
+		CountDownLatch release = new CountDownLatch(1);
+		CountDownLatch entered = new CountDownLatch(1);
+		receiver.subscribe(event -> {
+			entered.countDown();
+			try {
+				release.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		});
+
+		publisher.publish(PushEvent.of("attempts:a", "attempt-created", "{}"));
+		assertThat(entered.await(5, TimeUnit.SECONDS)).isTrue();
+		publisher.publish(PushEvent.of("attempts:b", "attempt-created", "{}"));
+
+		// the receiver keeps taking notifications while its subscriber is still blocked
+		BlockingQueue<String> pending = listeners.get(nodes.indexOf(receiver));
+		long deadline = System.currentTimeMillis() + 5000;
+		while (!pending.isEmpty() && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+		assertThat(pending).isEmpty();
+		assertThat(entered.getCount()).isZero();
+
+		release.countDown();
+	}
+
+	@Test
+	void aNodeThatLosesItsListenerReconnectsAndReceivesAgain() throws Exception {
+		SimpleMeterRegistry registry = new SimpleMeterRegistry();
+		AtomicInteger failures = new AtomicInteger(1);
+		PostgresPushEventBus receiver = node(registry, failures);
+		PostgresPushEventBus publisher = node();
+		BlockingQueue<PushEvent> received = new LinkedBlockingQueue<>();
+		receiver.subscribe(received::add);
+
+		// the listener is back once it polls the new connection; events before that are lost
+		long deadline = System.currentTimeMillis() + 5000;
+		while (failures.get() >= 0 && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+		assertThat(registry.counter("push.events.reconnects").count()).isEqualTo(1);
+		publisher.publish(PushEvent.of("login:abc", "login-success", "{}"));
+
+		assertThat(received.poll(5, TimeUnit.SECONDS)).isNotNull();
+	}
+
+	private PostgresPushEventBus node() throws Exception {
+		return node(new SimpleMeterRegistry(), new AtomicInteger());
+	}
+
+	/** {@code failures}: how many times the listening connection drops before it holds. */
+	private PostgresPushEventBus node(SimpleMeterRegistry registry, AtomicInteger failures) throws Exception {
+		BlockingQueue<String> notifications = new LinkedBlockingQueue<>();
+		listeners.add(notifications);
+
+		PGNotification[] none = null;
+		PGConnection pg = mock(PGConnection.class);
+		when(pg.getNotifications(anyInt())).thenAnswer(call -> {
+			// keeps counting down, so a negative count shows the connection has been polled since
+			if (failures.getAndDecrement() > 0) {
+				throw new SQLException("connection reset");
+			}
+			String payload = notifications.poll(call.<Integer>getArgument(0), TimeUnit.MILLISECONDS);
+			if (payload == null) {
+				return none;
+			}
+			PGNotification notification = mock(PGNotification.class);
+			when(notification.getParameter()).thenReturn(payload);
+			return new PGNotification[] {notification};
+		});
+
+		Connection connection = mock(Connection.class);
+		when(connection.createStatement()).thenReturn(mock(Statement.class));
+		when(connection.unwrap(PGConnection.class)).thenReturn(pg);
+		DataSource dataSource = mock(DataSource.class);
+		when(dataSource.getConnection()).thenReturn(connection);
+
+		// pg_notify fans out to every listening node, this one included
+		JdbcTemplate jdbcTemplate = new JdbcTemplate() {
+			@Override
+			public <T> T query(String sql, ResultSetExtractor<T> rse, Object... args) {
+				listeners.forEach(listener -> listener.add((String) args[1]));
+				return null;
+			}
+		};
+
+		PostgresPushEventBus bus =
+				new PostgresPushEventBus(dataSource, jdbcTemplate, new ObjectMapper(), registry, 0, 100);
+		bus.start();
+		nodes.add(bus);
+		return bus;
+	}
+}
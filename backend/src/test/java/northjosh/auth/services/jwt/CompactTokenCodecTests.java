@@ -0,0 +1,89 @@
+package northjosh.auth.services.jwt;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.security.Keys;
+import java.time.Instant;
+import java.util.List;
+import javax.crypto.SecretKey;
+import org.junit.jupiter.api.Test;
+
+class CompactTokenCodecTests {
+
+	private static final String EMAIL = "test@example.com";
+
+	private final CompactTokenCodec codec = new CompactTokenCodec();
+
+	private final SecretKey secret = Keys.secretKeyFor(SignatureAlgorithm.HS256);
+
+	private final SigningKeyRing.ActiveKey key = new SigningKeyRing.ActiveKey(
+			"kid",
+			SignatureAlgorithm.HS256,
+			secret,
+			secret,
+			Instant.now(),
+			Instant.now(),
+			Instant.now().plusSeconds(3600),
+			CompactTokenCodec.encodedHeader("kid", SignatureAlgorithm.HS256.getValue()));
+
+	@Test
+	void aTokenRoundTripsAndJjwtAcceptsIt() {
+		long now = Instant.now().getEpochSecond();
+		String token = codec.encode(key, TokenType.REFRESH, EMAIL, "jti", "fid", now, now + 60);
+
+		TokenClaims claims = codec.decode(token, List.of(key));
+		assertThat(claims.getType()).isEqualTo(TokenType.REFRESH);
+		assertThat(claims.getEmail()).isEqualTo(EMAIL);
+		assertThat(claims.getTokenId()).isEqualTo("jti");
+		assertThat(claims.getFamilyId()).isEqualTo("fid");
+		assertThat(claims.getExpiresAt()).isEqualTo(Instant.ofEpochSecond(now + 60));
+
+		Claims parsed = Jwts.parserBuilder()
+				.setSigningKey(secret)
+				.build()
+				.parseClaimsJws(token)
+				.getBody();
+		assertThat(parsed.get("email", String.class)).isEqualTo(EMAIL);
+		assertThat(parsed.get("fid", String.class)).isEqualTo("fid");
+	}
+
+	@Test
+	void longIdsDoNotOverrunThePayloadBuffer() {
+		long now = Instant.now().getEpochSecond();
+		String tokenId = "t".repeat(600);
+		String familyId = "f".repeat(600);
+
+		String token = codec.encode(key, TokenType.REFRESH, EMAIL, tokenId, familyId, now, now + 60);
+
+		TokenClaims claims = codec.decode(token, List.of(key));
+		assertThat(claims.getTokenId()).isEqualTo(tokenId);
+		assertThat(claims.getFamilyId()).isEqualTo(familyId);
+	}
+
+	@Test
+	void whatTheCodecCannotWriteIsLeftToJjwt() {
+		long now = Instant.now().getEpochSecond();
+
+		assertThat(codec.encode(key, TokenType.ACCESS, "a\"b@example.com", "jti", null, now, now + 60))
+				.isNull();
+		assertThat(codec.encode(key, TokenType.ACCESS, EMAIL, null, null, now, now + 60))
+				.isNull();
+	}
+
+	@Test
+	void aTamperedOrExpiredTokenIsLeftToJjwt() {
+		long now = Instant.now().getEpochSecond();
+		String token = codec.encode(key, TokenType.ACCESS, EMAIL, "jti", null, now, now + 60);
+		String expired = codec.encode(key, TokenType.ACCESS, EMAIL, "jti", null, now - 120, now - 60);
+		String tampered = token.substring(0, token.length() - 2) + (token.endsWith("AA") ? "BB" : "AA");
+
+		assertThat(codec.decode(tampered, List.of(key))).isNull();
+		assertThat(codec.decode(expired, List.of(key))).isNull();
+		assertThat(codec.decode(
+						Jwts.builder().setSubject(EMAIL).signWith(secret).compact(), List.of(key)))
+				.isNull();
+	}
+}
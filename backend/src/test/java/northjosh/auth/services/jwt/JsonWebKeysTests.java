@@ -0,0 +1,104 @@
+package northjosh.auth.services.jwt;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import io.jsonwebtoken.Jwts;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.math.BigInteger;
+import java.security.AlgorithmParameters;
+import java.security.KeyFactory;
+import java.security.PublicKey;
+import java.security.spec.ECGenParameterSpec;
+import java.security.spec.ECParameterSpec;
+import java.security.spec.ECPoint;
+import java.security.spec.ECPublicKeySpec;
+import java.security.spec.RSAPublicKeySpec;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import northjosh.auth.repo.jwt.SigningKey;
+import northjosh.auth.repo.jwt.SigningKeyRepo;
+import northjosh.auth.services.revocation.TokenRevocationService;
+import org.junit.jupiter.api.Test;
+
+class JsonWebKeysTests {
+
+	private static final String EMAIL = "test@example.com";
+
+	@Test
+	void anEcTokenVerifiesWithNothingButTheJwks() throws Exception {
+		JwtService jwtService = jwtService("ES256");
+		String token = jwtService.generateAccessToken(EMAIL);
+
+		Map<String, Object> jwk = onlyKey(jwtService);
+		assertThat(jwk).containsEntry("kty", "EC").containsEntry("crv", "P-256").doesNotContainKey("d");
+
+		AlgorithmParameters parameters = AlgorithmParameters.getInstance("EC");
+		parameters.init(new ECGenParameterSpec("secp256r1"));
+		PublicKey key = KeyFactory.getInstance("EC")
+				.generatePublic(new ECPublicKeySpec(
+						new ECPoint(number(jwk, "x"), number(jwk, "y")),
+						parameters.getParameterSpec(ECParameterSpec.class)));
+
+		assertThat(verifiedEmail(token, key)).isEqualTo(EMAIL);
+	}
+
+	@Test
+	void anRsaTokenVerifiesWithNothingButTheJwks() throws Exception {
+		JwtService jwtService = jwtService("RS256");
+		String token = jwtService.generateAccessToken(EMAIL);
+
+		Map<String, Object> jwk = onlyKey(jwtService);
+		assertThat(jwk).containsEntry("kty", "RSA").doesNotContainKeys("d", "p", "q");
+
+		PublicKey key =
+				KeyFactory.getInstance("RSA").generatePublic(new RSAPublicKeySpec(number(jwk, "n"), number(jwk, "e")));
+
+		assertThat(verifiedEmail(token, key)).isEqualTo(EMAIL);
+	}
+
+	@Test
+	void hmacKeysAreNeverPublished() {
+		assertThat(jwtService("HS256").getJsonWebKeySet().getKeys()).isEmpty();
+	}
+
+	private static Map<String, Object> onlyKey(JwtService jwtService) {
+		List<Map<String, Object>> keys = jwtService.getJsonWebKeySet().getKeys();
+		assertThat(keys).hasSize(1);
+		return keys.get(0);
+	}
+
+	private static String verifiedEmail(String token, PublicKey key) {
+		return Jwts.parserBuilder()
+				.setSigningKey(key)
+				.build()
+				.parseClaimsJws(token)
+				.getBody()
+				.get("email", String.class);
+	}
+
+	private static BigInteger number(Map<String, Object> jwk, String member) {
+		return new BigInteger(1, Base64.getUrlDecoder().decode((String) jwk.get(member)));
+	}
+
+	private static JwtService jwtService(String algorithm) {
+		List<SigningKey> table = new ArrayList<>();
+		SigningKeyRepo repo = mock(SigningKeyRepo.class);
+		when(repo.findAllByExpiresAtAfter(any())).thenAnswer(call -> List.copyOf(table));
+		when(repo.save(any())).thenAnswer(call -> {
+			table.add(call.getArgument(0));
+			return call.getArgument(0);
+		});
+
+		SigningKeyRing ring =
+				new SigningKeyRing(repo, Duration.ofHours(24), 60_000, Duration.ofMinutes(5), algorithm, "");
+		ring.init();
+		return new JwtService(
+				ring, new VerifiedTokenCache(true, 100, new SimpleMeterRegistry()), mock(TokenRevocationService.class));
+	}
+}
@@ -0,0 +1,100 @@
+package northjosh.auth.services.jwt;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.Jwts;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import northjosh.auth.exceptions.WebAuthnException;
+import northjosh.auth.repo.jwt.SigningKey;
+import northjosh.auth.repo.jwt.SigningKeyRepo;
+import northjosh.auth.services.revocation.TokenRevocationService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class JwtServiceTests {
+
+	private static final String EMAIL = "test@example.com";
+
+	private SigningKeyRing ring;
+
+	private JwtService jwtService;
+
+	@BeforeEach
+	void setUp() {
+		List<SigningKey> table = new ArrayList<>();
+		SigningKeyRepo repo = mock(SigningKeyRepo.class);
+		when(repo.findAllByExpiresAtAfter(any())).thenAnswer(call -> List.copyOf(table));
+		when(repo.save(any())).thenAnswer(call -> {
+			table.add(call.getArgument(0));
+			return call.getArgument(0);
+		});
+
+		ring = new SigningKeyRing(repo, Duration.ofHours(24), 60_000, Duration.ofMinutes(5), "HS256", "");
+		ring.init();
+		jwtService = new JwtService(
+				ring, new VerifiedTokenCache(true, 100, new SimpleMeterRegistry()), mock(TokenRevocationService.class));
+	}
+
+	@Test
+	void eachMintedTokenParsesBackAsItsType() {
+		TokenClaims refresh = jwtService.parse(jwtService.generateRefreshToken(EMAIL, "family", "jti"));
+
+		assertThat(jwtService.parse(jwtService.generateAccessToken(EMAIL)).is(TokenType.ACCESS))
+				.isTrue();
+		assertThat(jwtService.isPendingToken(jwtService.generatePendingToken(EMAIL)))
+				.isTrue();
+		assertThat(jwtService.isVerificationToken(jwtService.generateVerificationToken(EMAIL)))
+				.isTrue();
+		assertThat(refresh.getEmail()).isEqualTo(EMAIL);
+		assertThat(refresh.getFamilyId()).isEqualTo("family");
+		assertThat(refresh.getTokenId()).isEqualTo("jti");
+	}
+
+	@Test
+	void aTokenTheCodecDidNotWriteGoesThroughTheSharedParser() {
+		SigningKeyRing.ActiveKey key = ring.current();
+		String token = Jwts.builder()
+				.setHeaderParam(JwsHeader.KEY_ID, key.getKid())
+				.claim("email", EMAIL)
+				.claim("type", TokenType.ACCESS.getValue())
+				.setExpiration(Date.from(Instant.now().plusSeconds(60)))
+				.signWith(key.getSigningKey(), key.getAlgorithm())
+				.compact();
+
+		assertThat(jwtService.getUsername(token)).isEqualTo(EMAIL);
+	}
+
+	@Test
+	void expiredTamperedOrUnknownTokensAreRefused() {
+		SigningKeyRing.ActiveKey key = ring.current();
+		String expired = Jwts.builder()
+				.setHeaderParam(JwsHeader.KEY_ID, key.getKid())
+				.claim("email", EMAIL)
+				.claim("type", TokenType.ACCESS.getValue())
+				.setExpiration(Date.from(Instant.now().minusSeconds(60)))
+				.signWith(key.getSigningKey(), key.getAlgorithm())
+				.compact();
+		String unknownKey = Jwts.builder()
+				.setHeaderParam(JwsHeader.KEY_ID, "unknown")
+				.claim("email", EMAIL)
+				.signWith(key.getSigningKey(), key.getAlgorithm())
+				.compact();
+		String token = jwtService.generateAccessToken(EMAIL);
+		String tampered = token.substring(0, token.lastIndexOf('.') + 1) + "x".repeat(43);
+
+		assertThatThrownBy(() -> jwtService.parse(expired)).isInstanceOf(JwtException.class);
+		assertThatThrownBy(() -> jwtService.parse(unknownKey)).isInstanceOf(JwtException.class);
+		assertThatThrownBy(() -> jwtService.isTokenValid(tampered)).isInstanceOf(WebAuthnException.class);
+	}
+}
@@ -0,0 +1,103 @@
+package northjosh.auth.services.jwt;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import northjosh.auth.repo.jwt.SigningKey;
+import northjosh.auth.repo.jwt.SigningKeyRepo;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+
+class SigningKeyRingTests {
+
+	/** Stands in for {@code signing_keys}, including its unique {@code generation}. */
+	private final List<SigningKey> table = new ArrayList<>();
+
+	@Test
+	void nodesRotatingFromTheSameViewShareOneKey() {
+		SigningKeyRing first = ring(repo(false), Duration.ofHours(24), "");
+		SigningKeyRing second = ring(repo(true), Duration.ofHours(24), "");
+
+		first.init();
+		// loads the table as it was before the first node's insert, so it rotates as well
+		second.init();
+
+		assertThat(table).hasSize(1);
+		assertThat(second.current().getKid()).isEqualTo(first.current().getKid());
+	}
+
+	@Test
+	void rotationTakesTheNextGeneration() {
+		SigningKeyRing ring = ring(repo(false), Duration.ZERO, "");
+
+		ring.init();
+		ring.refresh();
+
+		assertThat(table).extracting(SigningKey::getGeneration).containsExactly(1L, 2L);
+	}
+
+	@Test
+	void aSuccessorIsPublishedBeforeItSigns() {
+		// shorter than publish-ahead, so the next refresh already needs a successor
+		SigningKeyRing ring = ring(repo(false), Duration.ofMinutes(2), "");
+
+		ring.init();
+		ring.refresh();
+
+		assertThat(table).hasSize(2);
+		SigningKey first = table.get(0);
+		SigningKey next = table.get(1);
+		assertThat(next.getActiveFrom()).isEqualTo(first.getActiveUntil()).isAfter(Instant.now());
+		assertThat(ring.current().getKid()).isEqualTo(first.getKid());
+		assertThat(ring.all()).extracting(SigningKeyRing.ActiveKey::getKid).contains(next.getKid());
+	}
+
+	@Test
+	void secretsAreSealedWithTheEncryptionKey() {
+		String kek = Base64.getEncoder().encodeToString(new byte[32]);
+		SigningKeyRing ring = ring(repo(false), Duration.ofHours(24), kek);
+
+		ring.init();
+
+		SigningKey row = table.get(0);
+		assertThat(row.getEncrypted()).isTrue();
+		assertThat(row.getSecret()).isNotEqualTo(ring.current().getSigningKey().getEncoded());
+
+		// a node without the key cannot use the row
+		assertThatThrownBy(() -> ring(repo(false), Duration.ofHours(24), "").init())
+				.isInstanceOf(IllegalStateException.class);
+	}
+
+	private static SigningKeyRing ring(SigningKeyRepo repo, Duration rotationInterval, String encryptionKey) {
+		return new SigningKeyRing(repo, rotationInterval, 60_000, Duration.ofMinutes(5), "HS256", encryptionKey);
+	}
+
+	private SigningKeyRepo repo(boolean staleFirstRead) {
+		SigningKeyRepo repo = mock(SigningKeyRepo.class);
+
+		var reads = when(repo.findAllByExpiresAtAfter(any()));
+		if (staleFirstRead) {
+			reads = reads.thenReturn(List.of());
+		}
+		reads.thenAnswer(call -> List.copyOf(table));
+
+		when(repo.save(any())).thenAnswer(call -> {
+			SigningKey key = call.getArgument(0);
+			if (table.stream().anyMatch(row -> key.getGeneration().equals(row.getGeneration()))) {
+				throw new DataIntegrityViolationException("duplicate generation " + key.getGeneration());
+			}
+			table.add(key);
+			return key;
+		});
+
+		return repo;
+	}
+}
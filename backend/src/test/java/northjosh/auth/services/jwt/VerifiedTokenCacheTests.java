@@ -0,0 +1,84 @@
+package northjosh.auth.services.jwt;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import io.jsonwebtoken.JwtException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import northjosh.auth.repo.jwt.SigningKey;
+import northjosh.auth.repo.jwt.SigningKeyRepo;
+import northjosh.auth.services.revocation.TokenRevocationService;
+import org.junit.jupiter.api.Test;
+
+class VerifiedTokenCacheTests {
+
+	private static final String EMAIL = "test@example.com";
+
+	private final VerifiedTokenCache cache = new VerifiedTokenCache(true, 100, new SimpleMeterRegistry());
+
+	@Test
+	void aCachedTokenIsNotVerifiedAgain() {
+		AtomicInteger verified = new AtomicInteger();
+		TokenClaims claims =
+				new TokenClaims(TokenType.ACCESS, EMAIL, Instant.now().plusSeconds(60), "jti");
+
+		for (int i = 0; i < 3; i++) {
+			cache.get("header.payload.signature", token -> {
+				verified.incrementAndGet();
+				return claims;
+			});
+		}
+
+		assertThat(verified).hasValue(1);
+	}
+
+	@Test
+	void aRevokedTokenIsRejectedThoughCached() {
+		TokenRevocationService revocation = mock(TokenRevocationService.class);
+		JwtService jwtService = new JwtService(ring(new ArrayList<>()), cache, revocation);
+		String token = jwtService.generateAccessToken(EMAIL);
+		jwtService.parse(token);
+
+		when(revocation.isRevoked(anyString())).thenReturn(true);
+
+		assertThatThrownBy(() -> jwtService.parse(token)).isInstanceOf(JwtException.class);
+	}
+
+	@Test
+	void aTokenSignedWithARemovedKeyIsNotServedFromTheCache() {
+		List<SigningKey> table = new ArrayList<>();
+		SigningKeyRing ring = ring(table);
+		JwtService jwtService = new JwtService(ring, cache, mock(TokenRevocationService.class));
+		String token = jwtService.generateAccessToken(EMAIL);
+		assertThat(jwtService.parse(token).getEmail()).isEqualTo(EMAIL);
+
+		// deleted by hand, say after a leak; the next reload drops it
+		table.clear();
+		ring.refresh();
+
+		assertThatThrownBy(() -> jwtService.parse(token)).isInstanceOf(JwtException.class);
+	}
+
+	private static SigningKeyRing ring(List<SigningKey> table) {
+		SigningKeyRepo repo = mock(SigningKeyRepo.class);
+		when(repo.findAllByExpiresAtAfter(any())).thenAnswer(call -> List.copyOf(table));
+		when(repo.save(any())).thenAnswer(call -> {
+			table.add(call.getArgument(0));
+			return call.getArgument(0);
+		});
+
+		SigningKeyRing ring =
+				new SigningKeyRing(repo, Duration.ofHours(24), 60_000, Duration.ofMinutes(5), "HS256", "");
+		ring.init();
+		return ring;
+	}
+}
@@ -0,0 +1,112 @@
+package northjosh.auth.services.otp;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import northjosh.auth.dto.PageCursor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class InMemoryPushAttemptStoreTests {
+
+	private static final String EMAIL = "test@example.com";
+
+	private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+	private final List<PushAttempt> expired = new CopyOnWriteArrayList<>();
+
+	private InMemoryPushAttemptStore store;
+
+	@BeforeEach
+	void setUp() {
+		// 16 slots of 20 ms, so one revolution of the wheel is 320 ms
+		store = new InMemoryPushAttemptStore(Duration.ofMillis(200), Duration.ofMillis(20), registry);
+		store.onExpired(expired::add);
+	}
+
+	@AfterEach
+	void tearDown() {
+		store.shutdown();
+	}
+
+	@Test
+	void anAttemptLeftAloneExpiresOnceAndDisappears() {
+		store.save(attempt("a", Duration.ofMillis(100)));
+
+		await().atMost(Duration.ofSeconds(2)).until(() -> expired.size() == 1);
+
+		assertThat(expired).extracting(PushAttempt::getRequestId).containsExactly("a");
+		assertThat(store.take("a")).isEmpty();
+		assertThat(store.findByEmail(EMAIL, null, 10)).isEmpty();
+		assertThat(registry.counter("push.attempts.expired").count()).isEqualTo(1);
+	}
+
+	@Test
+	void anAttemptBeyondOneRevolutionWaitsForItsOwnDeadline() throws Exception {
+		store.save(attempt("late", Duration.ofMillis(700)));
+
+		// its slot comes round at least once before the deadline and must put it back
+		Thread.sleep(450);
+		assertThat(expired).isEmpty();
+		assertThat(store.findByEmail(EMAIL, null, 10)).hasSize(1);
+
+		await().atMost(Duration.ofSeconds(2)).until(() -> expired.size() == 1);
+	}
+
+	@Test
+	void aTakenAttemptIsGoneAndNeverReportedExpired() throws Exception {
+		store.save(attempt("a", Duration.ofMillis(60)));
+
+		assertThat(store.take("a")).isPresent();
+		assertThat(store.take("a")).isEmpty();
+
+		Thread.sleep(200);
+		assertThat(expired).isEmpty();
+	}
+
+	@Test
+	void pendingAttemptsPageInCreationOrder() {
+		LocalDateTime now = LocalDateTime.now();
+		store.save(attempt("c", now.plusSeconds(2)));
+		store.save(attempt("a", now));
+		store.save(attempt("b", now.plusSeconds(1)));
+
+		List<PushAttempt> first = store.findByEmail(EMAIL, null, 2);
+		PushAttempt last = first.get(first.size() - 1);
+		List<PushAttempt> second =
+				store.findByEmail(EMAIL, new PageCursor(last.getCreatedAt(), last.getRequestId()), 2);
+
+		assertThat(first).extracting(PushAttempt::getRequestId).containsExactly("a", "b");
+		assertThat(second).extracting(PushAttempt::getRequestId).containsExactly("c");
+	}
+
+	private static PushAttempt attempt(String requestId, Duration expiresIn) {
+		return new PushAttempt(
+				requestId,
+				"123456",
+				null,
+				1L,
+				EMAIL,
+				null,
+				LocalDateTime.now(),
+				Instant.now().plus(expiresIn));
+	}
+
+	private static PushAttempt attempt(String requestId, LocalDateTime createdAt) {
+		return new PushAttempt(
+				requestId,
+				"123456",
+				null,
+				1L,
+				EMAIL,
+				null,
+				createdAt,
+				Instant.now().plusSeconds(60));
+	}
+}
@@ -0,0 +1,171 @@
+package northjosh.auth.services.otp;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.yubico.webauthn.data.ByteArray;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import northjosh.auth.controllers.PushAuthController;
+import northjosh.auth.controllers.SseEmitters;
+import northjosh.auth.dto.PushAuthResponse;
+import northjosh.auth.dto.mapper.PushAuthMapperImpl;
+import northjosh.auth.dto.mapper.UserMapperImpl;
+import northjosh.auth.exceptions.WebAuthnException;
+import northjosh.auth.services.auth.RefreshTokenService;
+import northjosh.auth.services.jwt.JwtService;
+import northjosh.auth.services.jwt.TokenClaims;
+import northjosh.auth.services.jwt.TokenType;
+import northjosh.auth.services.user.UserSnapshot;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.util.ReflectionTestUtils;
+
+class PushAuthServiceTests {
+
+	private static final int ATTEMPTS = 10_000;
+
+	private InMemoryPushAttemptStore store;
+	private SseEmitters emitters;
+	private JwtService jwtService;
+	private RefreshTokenService refreshTokenService;
+	private PushAuthService service;
+	private UserSnapshot user;
+
+	@BeforeEach
+	void setUp() {
+		SimpleMeterRegistry registry = new SimpleMeterRegistry();
+		store = new InMemoryPushAttemptStore(Duration.ofMinutes(2), Duration.ofSeconds(1), registry);
+		emitters = mock(SseEmitters.class);
+		jwtService = mock(JwtService.class);
+		refreshTokenService = mock(RefreshTokenService.class);
+		PushAuthMapperImpl mapper = new PushAuthMapperImpl();
+		ReflectionTestUtils.setField(mapper, "userMapper", new UserMapperImpl());
+		service = new PushAuthService(
+				store,
+				emitters,
+				jwtService,
+				refreshTokenService,
+				new UserAgentParser(100, registry),
+				mapper,
+				Duration.ofMinutes(2));
+		user = new UserSnapshot(
+				1L,
+				new ByteArray(new byte[0]),
+				"test_user@example.com",
+				"Test",
+				"User",
+				null,
+				null,
+				false,
+				true,
+				List.of());
+	}
+
+	@AfterEach
+	void tearDown() {
+		store.shutdown();
+	}
+
+	@Test
+	void burstOfAttemptsRetainsNoHttpSessions() {
+		Set<String> requestIds = new HashSet<>();
+
+		for (int i = 0; i < ATTEMPTS; i++) {
+			MockHttpServletRequest request = new MockHttpServletRequest("POST", "/push/generate");
+			requestIds.add(service.createSession(user, request).getRequestId());
+
+			assertThat(request.getSession(false)).isNull();
+		}
+
+		assertThat(requestIds).hasSize(ATTEMPTS);
+		assertThat(store.findByEmail(user.getEmail(), null, Integer.MAX_VALUE)).hasSize(ATTEMPTS);
+	}
+
+	@Test
+	void requestIdSurvivesTheClientIdFormat() {
+		String requestId =
+				service.createSession(user, new MockHttpServletRequest()).getRequestId();
+		String clientId = Base64.getEncoder()
+				.encodeToString(("auth_login_" + requestId + "_" + user.getEmail()).getBytes(StandardCharsets.UTF_8));
+
+		String[] decoded = PushAuthController.decode(clientId);
+
+		assertThat(requestId).hasSize(32).matches("[0-9a-f]+");
+		assertThat(decoded[2]).isEqualTo(requestId);
+		assertThat(decoded[3]).isEqualTo(user.getEmail());
+	}
+
+	@Test
+	void onlyGeneratedRequestIdsNameALoginChannel() {
+		assertThat(PushAuthService.isRequestId(PushAuthService.newRequestId())).isTrue();
+		assertThat(PushAuthService.isRequestId("attempts:" + user.getEmail())).isFalse();
+		assertThat(PushAuthService.isRequestId("0123456789ABCDEF0123456789ABCDEF"))
+				.isFalse();
+		assertThat(PushAuthService.isRequestId("0123456789abcdef")).isFalse();
+		assertThat(PushAuthService.isRequestId(null)).isFalse();
+		assertThat(PushAuthService.loginChannel(PushAuthService.newRequestId()))
+				.doesNotStartWith(PushAuthService.attemptsChannel(""));
+	}
+
+	@Test
+	void loginSuccessCarriesAGrantOnlyTheInitiatorCanRedeem() {
+		PushAuthResponse attempt = service.createSession(user, new MockHttpServletRequest());
+		when(jwtService.generatePushGrant(eq(user.getEmail()), any())).thenReturn("grant");
+
+		service.verify(Map.of("requestId", attempt.getRequestId(), "otp", attempt.getOtp()));
+
+		ArgumentCaptor<String> keyHash = ArgumentCaptor.forClass(String.class);
+		verify(jwtService).generatePushGrant(eq(user.getEmail()), keyHash.capture());
+		verify(emitters)
+				.publish(
+						PushAuthService.loginChannel(attempt.getRequestId()),
+						"login-success",
+						Map.of("grant", "grant"));
+		assertThat(keyHash.getValue()).doesNotContain(attempt.getExchangeKey());
+
+		TokenClaims claims = new TokenClaims(
+				TokenType.PUSH_GRANT, user.getEmail(), Instant.now().plusSeconds(60), keyHash.getValue());
+		when(jwtService.parse("grant")).thenReturn(claims);
+
+		assertThatThrownBy(() -> service.exchange("grant", PushAuthService.newRequestId()))
+				.isInstanceOf(WebAuthnException.class);
+		assertThatThrownBy(() -> service.exchange("grant", null)).isInstanceOf(WebAuthnException.class);
+		verify(refreshTokenService, never()).issue(any());
+
+		when(jwtService.consume(claims)).thenReturn(true, false);
+		service.exchange("grant", attempt.getExchangeKey());
+
+		verify(refreshTokenService).issue(user.getEmail());
+
+		// a second redemption, even one racing the first, finds the grant consumed
+		assertThatThrownBy(() -> service.exchange("grant", attempt.getExchangeKey()))
+				.isInstanceOf(WebAuthnException.class);
+		verify(refreshTokenService).issue(user.getEmail());
+	}
+
+	@Test
+	void onlyTheExchangeKeysHashIsStored() {
+		PushAuthResponse response = service.createSession(user, new MockHttpServletRequest());
+
+		PushAttempt stored = store.take(response.getRequestId()).orElseThrow();
+
+		assertThat(stored.getExchangeKeyHash()).hasSize(64).doesNotContain(response.getExchangeKey());
+	}
+}
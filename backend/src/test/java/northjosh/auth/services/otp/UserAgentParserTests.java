@@ -0,0 +1,54 @@
+package northjosh.auth.services.otp;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import northjosh.auth.repo.pushauth.ClientInfo;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import ua_parser.Client;
+
+class UserAgentParserTests {
+
+	private static final String FIREFOX =
+			"Mozilla/5.0 (Windows NT 10.0; Win64; x64; rv:120.0) Gecko/20100101 Firefox/120.0";
+
+	private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+	private final UserAgentParser parser = new UserAgentParser(10, registry);
+
+	@Test
+	void aRepeatedAgentIsParsedOnce() {
+		Client first = parser.parse(FIREFOX);
+		Client again = parser.parse(new String(FIREFOX));
+
+		assertThat(again).isSameAs(first);
+		assertThat(first.userAgent.family).isEqualTo("Firefox");
+		assertThat(registry.get("cache.gets")
+						.tag("cache", "push.user-agents")
+						.tag("result", "hit")
+						.functionCounter()
+						.count())
+				.isEqualTo(1);
+	}
+
+	@Test
+	void aRequestWithoutAnAgentStillGetsClientInfo() {
+		MockHttpServletRequest request = new MockHttpServletRequest();
+		request.setRemoteAddr("10.0.0.1");
+
+		ClientInfo clientInfo = parser.clientInfo(request);
+
+		assertThat(clientInfo.getUserAgentFamily()).isEqualTo("Other");
+		assertThat(clientInfo.getRemoteAddress()).isEqualTo("10.0.0.1");
+	}
+
+	@Test
+	void clientInfoReadsTheUserAgentHeader() {
+		MockHttpServletRequest request = new MockHttpServletRequest();
+		request.addHeader(HttpHeaders.USER_AGENT, FIREFOX);
+
+		assertThat(parser.clientInfo(request).getOsFamily()).isEqualTo("Windows");
+	}
+}
@@ -0,0 +1,74 @@
+package northjosh.auth.services.revocation;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+import northjosh.auth.repo.revocation.RevokedTokenRepo;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class TokenRevocationServiceTests {
+
+	private final RevokedTokenRepo repo = mock(RevokedTokenRepo.class);
+
+	/** The ids in {@code revoked_tokens}, whichever node wrote them. */
+	private final List<String> table = new ArrayList<>();
+
+	private TokenRevocationService service;
+
+	@BeforeEach
+	void setUp() {
+		when(repo.findLiveIds(any())).thenAnswer(call -> List.copyOf(table));
+		when(repo.existsById(anyString())).thenAnswer(call -> table.contains(call.<String>getArgument(0)));
+
+		service = new TokenRevocationService(repo, new SimpleMeterRegistry(), 1000, 0.01);
+		service.init();
+	}
+
+	@Test
+	void aTokenThatWasNeverRevokedIsClearedWithoutTheDatabase() {
+		assertThat(service.isRevoked("never-revoked")).isFalse();
+
+		verify(repo, never()).existsById(anyString());
+	}
+
+	@Test
+	void aTokenRevokedHereIsRefusedAtOnce() {
+		table.add("revoked");
+		service.revoke("revoked", Instant.now().plusSeconds(60));
+
+		assertThat(service.isRevoked("revoked")).isTrue();
+	}
+
+	@Test
+	void aRevocationFromAnotherNodeIsPickedUpOnRebuild() {
+		table.add("elsewhere");
+		assertThat(service.isRevoked("elsewhere")).isFalse();
+
+		service.rebuild();
+
+		assertThat(service.isRevoked("elsewhere")).isTrue();
+	}
+
+	@Test
+	void theFilterHasNoFalseNegativesAndAboutTheConfiguredFalsePositiveRate() {
+		BloomFilter filter = new BloomFilter(10_000, 0.01);
+		IntStream.range(0, 10_000).forEach(i -> filter.put("in-" + i));
+
+		assertThat(IntStream.range(0, 10_000)).allMatch(i -> filter.mightContain("in-" + i));
+		long falsePositives = IntStream.range(0, 100_000)
+				.filter(i -> filter.mightContain("out-" + i))
+				.count();
+		assertThat(falsePositives).isLessThan(2_000);
+	}
+}
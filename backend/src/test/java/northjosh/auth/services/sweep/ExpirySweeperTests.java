@@ -0,0 +1,114 @@
+package northjosh.auth.services.sweep;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import javax.sql.DataSource;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+class ExpirySweeperTests {
+
+	private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+	/** Every statement the sweeper prepared, in order. */
+	private final List<String> statements = new ArrayList<>();
+
+	/** Rows each successive DELETE reports. */
+	private final Deque<Integer> deleted = new ArrayDeque<>();
+
+	private boolean lockFree = true;
+
+	@Test
+	void nothingIsSweptOffPostgres() throws Exception {
+		ExpirySweeper sweeper = sweeper("H2", 10, 5);
+
+		sweeper.sweep();
+		sweeper.sweep();
+
+		assertThat(statements).isEmpty();
+	}
+
+	@Test
+	void aNodeThatCannotTakeTheLockSkipsTheSweep() throws Exception {
+		lockFree = false;
+		ExpirySweeper sweeper = sweeper("PostgreSQL", 10, 5);
+
+		sweeper.sweep();
+
+		assertThat(statements).containsExactly("select pg_try_advisory_lock(?)");
+		assertThat(registry.counter("expiry.sweep.skipped").count()).isEqualTo(1);
+	}
+
+	@Test
+	void chunksRunUntilOneComesUpShortThenTheLockIsReleased() throws Exception {
+		deleted.addAll(List.of(10, 10, 3));
+		ExpirySweeper sweeper = sweeper("PostgreSQL", 10, 5);
+
+		sweeper.sweep();
+
+		assertThat(statements).hasSize(5);
+		assertThat(statements.get(1)).startsWith("delete from push_auth");
+		assertThat(statements.get(4)).isEqualTo("select pg_advisory_unlock(?)");
+		assertThat(registry.counter("expiry.sweep.rows", "table", "push_auth").count())
+				.isEqualTo(23);
+	}
+
+	@Test
+	void aSweepStopsAtMaxChunks() throws Exception {
+		deleted.addAll(List.of(10, 10, 10, 10));
+		ExpirySweeper sweeper = sweeper("PostgreSQL", 10, 2);
+
+		sweeper.sweep();
+
+		assertThat(statements).filteredOn(sql -> sql.startsWith("delete")).hasSize(2);
+		assertThat(deleted).hasSize(2);
+	}
+
+	private ExpirySweeper sweeper(String database, int chunkSize, int maxChunks) throws Exception {
+		DatabaseMetaData metaData = mock(DatabaseMetaData.class);
+		when(metaData.getDatabaseProductName()).thenReturn(database);
+
+		Connection connection = mock(Connection.class);
+		when(connection.getMetaData()).thenReturn(metaData);
+		when(connection.prepareStatement(anyString())).thenAnswer(call -> statement(call.getArgument(0)));
+		DataSource dataSource = mock(DataSource.class);
+		when(dataSource.getConnection()).thenReturn(connection);
+
+		ExpirySweeper sweeper = new ExpirySweeper(new JdbcTemplate(dataSource), registry, chunkSize, maxChunks);
+		sweeper.register(SweepTarget.builder()
+				.table("push_auth")
+				.idColumn("id")
+				.timestampColumn("created_at")
+				.cutoff(LocalDateTime::now)
+				.build());
+		return sweeper;
+	}
+
+	private PreparedStatement statement(String sql) throws Exception {
+		statements.add(sql);
+		PreparedStatement statement = mock(PreparedStatement.class);
+
+		if (sql.startsWith("delete")) {
+			when(statement.executeUpdate()).thenAnswer(call -> deleted.isEmpty() ? 0 : deleted.poll());
+		} else {
+			ResultSet result = mock(ResultSet.class);
+			when(result.next()).thenReturn(true);
+			when(result.getBoolean(1)).thenReturn(sql.contains("unlock") || lockFree);
+			when(statement.executeQuery()).thenReturn(result);
+		}
+		return statement;
+	}
+}
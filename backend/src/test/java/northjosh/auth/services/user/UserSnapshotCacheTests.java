@@ -0,0 +1,92 @@
+package northjosh.auth.services.user;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import northjosh.auth.repo.user.UserRow;
+import org.junit.jupiter.api.Test;
+
+class UserSnapshotCacheTests {
+
+	private static final String EMAIL = "test@example.com";
+
+	private final UserSnapshotCache cache =
+			new UserSnapshotCache(100, Duration.ofMinutes(1), new SimpleMeterRegistry());
+
+	@Test
+	void aCachedSnapshotsIdsCannotBeChangedByItsReaders() {
+		byte[] userId = {1, 2, 3};
+		byte[] credentialId = {4, 5, 6};
+		List<UserRow> rows =
+				List.of(new UserRow(1L, userId, EMAIL, "Test", "User", "hash", null, false, true, 7L, credentialId));
+
+		UserSnapshot first = cache.get(EMAIL, email -> UserSnapshot.of(rows));
+
+		// neither the rows it was read from nor the bytes handed out reach the cached copy
+		userId[0] = 9;
+		credentialId[0] = 9;
+		first.getUserId().getBytes()[1] = 9;
+		first.getCredentials().get(0).getCredentialId().getBytes()[1] = 9;
+
+		UserSnapshot again = cache.get(EMAIL, email -> null);
+		assertThat(again.getUserId().getBytes()).containsExactly(1, 2, 3);
+		assertThat(again.getCredentials().get(0).getCredentialId().getBytes()).containsExactly(4, 5, 6);
+	}
+
+	@Test
+	void anInvalidatedSnapshotIsLoadedAgain() {
+		AtomicInteger loads = new AtomicInteger();
+		Function<String, UserSnapshot> loader = email -> {
+			loads.incrementAndGet();
+			return UserSnapshot.of(List.of(
+					new UserRow(1L, new byte[] {1}, EMAIL, "Test", "User", "hash", null, false, true, null, null)));
+		};
+
+		cache.get(EMAIL, loader);
+		cache.get(EMAIL, loader);
+		assertThat(loads).hasValue(1);
+
+		cache.invalidate(EMAIL);
+		cache.get(EMAIL, loader);
+		assertThat(loads).hasValue(2);
+	}
+
+	@Test
+	void anUnknownUserIsNotCached() {
+		AtomicInteger loads = new AtomicInteger();
+
+		assertThat(cache.get(EMAIL, email -> {
+					loads.incrementAndGet();
+					return null;
+				}))
+				.isNull();
+		cache.get(EMAIL, email -> {
+			loads.incrementAndGet();
+			return null;
+		});
+
+		assertThat(loads).hasValue(2);
+	}
+
+	@Test
+	void handlesResolveUntilTheUserIsDeleted() {
+		byte[] handle = {7, 7};
+		AtomicInteger loads = new AtomicInteger();
+		Function<byte[], String> loader = key -> {
+			loads.incrementAndGet();
+			return EMAIL;
+		};
+
+		assertThat(cache.getEmail(handle, loader)).isEqualTo(EMAIL);
+		assertThat(cache.getEmail(new byte[] {7, 7}, loader)).isEqualTo(EMAIL);
+		assertThat(loads).hasValue(1);
+
+		cache.invalidateHandle(handle);
+		cache.getEmail(handle, loader);
+		assertThat(loads).hasValue(2);
+	}
+}
@@ -0,0 +1,114 @@
+package northjosh.auth.services.webauthn;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.sql.DataSource;
+import northjosh.auth.repo.user.User;
+import northjosh.auth.repo.user.UserRepo;
+import northjosh.auth.repo.webauthn.WebAuthnCredential;
+import northjosh.auth.repo.webauthn.WebAuthnCredentialRepo;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.dao.TransientDataAccessResourceException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class SignatureCountWriterTests {
+
+	@Autowired
+	private UserRepo userRepo;
+
+	@Autowired
+	private WebAuthnCredentialRepo credentialRepo;
+
+	@Autowired
+	private DataSource dataSource;
+
+	@Test
+	void repeatedAssertionsCoalesceToTheHighestCounter() {
+		byte[] credentialId = credential(0);
+		SignatureCountWriter writer = new SignatureCountWriter(new JdbcTemplate(dataSource), new SimpleMeterRegistry());
+
+		writer.record(credentialId, 5);
+		writer.record(credentialId, 9);
+		writer.record(credentialId, 7);
+		assertThat(writer.pending(credentialId, 0)).isEqualTo(9);
+
+		writer.flush();
+
+		assertThat(stored(credentialId)).isEqualTo(9);
+		assertThat(writer.pending(credentialId, 3)).isEqualTo(3);
+	}
+
+	@Test
+	void aFlushNeverLowersTheStoredCounter() {
+		byte[] credentialId = credential(20);
+		SignatureCountWriter writer = new SignatureCountWriter(new JdbcTemplate(dataSource), new SimpleMeterRegistry());
+
+		// say another node already stored a later assertion
+		writer.record(credentialId, 10);
+		writer.flush();
+
+		assertThat(stored(credentialId)).isEqualTo(20);
+	}
+
+	@Test
+	void aFailedFlushKeepsTheCounterBufferedAndVisible() {
+		byte[] credentialId = credential(0);
+		AtomicBoolean down = new AtomicBoolean(true);
+		JdbcTemplate flaky = new JdbcTemplate(dataSource) {
+			@Override
+			public int[] batchUpdate(String sql, List<Object[]> batchArgs) {
+				if (down.get()) {
+					throw new TransientDataAccessResourceException("database down");
+				}
+				return super.batchUpdate(sql, batchArgs);
+			}
+		};
+		SignatureCountWriter writer = new SignatureCountWriter(flaky, new SimpleMeterRegistry());
+
+		writer.record(credentialId, 4);
+		writer.flush();
+		assertThat(writer.pending(credentialId, 0)).isEqualTo(4);
+		assertThat(stored(credentialId)).isZero();
+
+		down.set(false);
+		writer.flush();
+		assertThat(stored(credentialId)).isEqualTo(4);
+	}
+
+	private byte[] credential(long signatureCount) {
+		User user = new User();
+		user.setFirstName("Test");
+		user.setLastName("User");
+		user.setEmail(UUID.randomUUID() + "@example.com");
+		user.setPassword("hash");
+		userRepo.save(user);
+
+		byte[] credentialId = UUID.randomUUID().toString().getBytes();
+		credentialRepo.save(WebAuthnCredential.builder()
+				.user(user)
+				.credentialId(credentialId)
+				.publicKeyCose(new byte[] {0})
+				.signatureCount(signatureCount)
+				.userHandle(user.getUserId())
+				.build());
+		return credentialId;
+	}
+
+	private long stored(byte[] credentialId) {
+		return credentialRepo.findByCredentialId(credentialId).orElseThrow().getSignatureCount();
+	}
+}
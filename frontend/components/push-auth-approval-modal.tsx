@@ -114,6 +114,20 @@ export function PushAuthApprovalModal({
                 <span className="text-gray-600">Requested at:</span>
                 <span>{new Date(attempt.createdAt).toLocaleString()}</span>
               </div>
+              {attempt.userAgentFamily && (
+                <div className="flex items-center justify-between">
+                  <span className="text-gray-600">Device:</span>
+                  <span>
+                    {attempt.userAgentFamily} on {attempt.osFamily} ({attempt.deviceFamily})
+                  </span>
+                </div>
+              )}
+              {attempt.remoteAddress && (
+                <div className="flex items-center justify-between">
+                  <span className="text-gray-600">IP address:</span>
+                  <span className="font-mono text-xs">{attempt.remoteAddress}</span>
+                </div>
+              )}
             </div>
           </div>
 
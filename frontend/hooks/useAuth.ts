@@ -12,7 +12,7 @@ export interface User {
 interface AuthContextType {
   user: User | null;
   token: string | null;
-  login: (token: string) => void;
+  login: (token: string, refreshToken?: string) => void;
   logout: () => void;
   loading: boolean;
   isAuthenticated: boolean;
@@ -49,7 +49,32 @@ export const useAuthState = () => {
     init();
   }, []);
 
-  const fetchUser = async (authToken: string) => {
+  const refresh = async (): Promise<string | null> => {
+    const refreshToken = localStorage.getItem("refresh_token");
+    if (!refreshToken) {
+      return null;
+    }
+
+    const response = await fetch("http://localhost:8001/auth/refresh", {
+      method: "POST",
+      headers: {
+        "Content-Type": "application/json",
+      },
+      body: JSON.stringify({ refreshToken }),
+    });
+
+    if (!response.ok) {
+      return null;
+    }
+
+    const data = await response.json();
+    setToken(data.data.token);
+    localStorage.setItem("auth_token", data.data.token);
+    localStorage.setItem("refresh_token", data.data.refreshToken);
+    return data.data.token;
+  };
+
+  const fetchUser = async (authToken: string, retry = true) => {
     try {
       const response = await fetch("http://localhost:8001/auth/me", {
         headers: {
@@ -61,7 +86,12 @@ export const useAuthState = () => {
         const userData = await response.json();
         setUser(userData.data);
       } else {
-        logout();
+        const refreshed = retry ? await refresh() : null;
+        if (refreshed) {
+          await fetchUser(refreshed, false);
+        } else {
+          logout();
+        }
       }
     } catch (error) {
       console.error("Failed to fetch user:", error);
@@ -71,16 +101,33 @@ export const useAuthState = () => {
     }
   };
 
-  const login = (newToken: string) => {
+  const login = (newToken: string, refreshToken?: string) => {
     setToken(newToken);
     localStorage.setItem("auth_token", newToken);
+    if (refreshToken) {
+      localStorage.setItem("refresh_token", refreshToken);
+    }
     fetchUser(newToken);
   };
 
   const logout = () => {
+    const currentToken = localStorage.getItem("auth_token");
+    const refreshToken = localStorage.getItem("refresh_token");
+    if (currentToken) {
+      fetch("http://localhost:8001/auth/logout", {
+        method: "POST",
+        headers: {
+          Authorization: `Bearer ${currentToken}`,
+          "Content-Type": "application/json",
+        },
+        body: JSON.stringify({ refreshToken }),
+      }).catch(() => {});
+    }
+
     setToken(null);
     setUser(null);
     localStorage.removeItem("auth_token");
+    localStorage.removeItem("refresh_token");
   };
 
   const refreshUser = async () => {
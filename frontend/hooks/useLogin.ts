@@ -26,7 +26,7 @@ export function useLogin() {
       if (data.data.totpRequired) {
         router.push(`/totp?token=${data.data.token}`);
       } else {
-        login(data.data.token);
+        login(data.data.token, data.data.refreshToken);
         router.push("/");
       }
     },
@@ -1,5 +1,6 @@
 import { useEffect, useState, useCallback, useRef } from "react";
 import { useAuth } from "./useAuth";
+import { decodeClientId, takeExchangeKey } from "@/utils/pushAuth";
 
 interface PushAuthState {
   status: "connecting" | "waiting" | "success" | "error" | "timeout";
@@ -55,14 +56,22 @@ export const usePushAuth = (options: PushAuthOptions) => {
         setState({ status: "waiting" });
       };
 
-      eventSource.addEventListener("login-success", (event) => {
-        console.log("Login success event received:", event.data);
+      eventSource.addEventListener("login-success", async (event) => {
+        cleanup();
         try {
-          const data = JSON.parse(event.data);
-          const token = data.token;
-          if (token) {
+          // the event only carries a grant; this tab's key turns it into tokens
+          const { grant } = JSON.parse(event.data);
+          const exchangeKey = takeExchangeKey(decodeClientId(clientId).requestId);
+          const response = await fetch("http://localhost:8001/push/exchange", {
+            method: "POST",
+            body: JSON.stringify({ grant, exchangeKey }),
+            headers: { "Content-Type": "application/json" },
+          });
+          const data = await response.json();
+          const token = data.data?.token;
+          if (response.ok && token) {
             setState({ status: "success" });
-            login(token);
+            login(token, data.data.refreshToken);
             onSuccess?.(token);
           } else {
             const error = "No token received";
@@ -70,14 +79,18 @@ export const usePushAuth = (options: PushAuthOptions) => {
             onError?.(error);
           }
         } catch (err) {
-          const error = "Failed to parse login response";
+          const error = "Failed to complete login";
           setState({ status: "error", error });
           onError?.(error);
         }
-        cleanup();
       });
 
       eventSource.onerror = (event) => {
+        // the browser reconnects on its own and the server replays from Last-Event-ID
+        if (eventSource.readyState === EventSource.CONNECTING) {
+          setState({ status: "connecting" });
+          return;
+        }
         console.error("SSE error:", event);
         const error = "Connection failed";
         setState({ status: "error", error });
@@ -1,6 +1,8 @@
+import { useEffect } from "react";
 import { useQuery, useMutation, useQueryClient } from "@tanstack/react-query";
 import { useAuth } from "./useAuth";
 import { toast } from "sonner";
+import { streamEvents } from "@/utils/eventStream";
 
 export interface PushAuthAttempt {
   id: number;
@@ -8,13 +10,20 @@ export interface PushAuthAttempt {
   email: string;
   createdAt: string;
   expiresAt: string;
+  deviceFamily?: string;
+  osFamily?: string;
+  userAgentFamily?: string;
+  remoteAddress?: string;
 }
 
+const ATTEMPTS_KEY = ["push-auth-attempts"];
+
 export const usePushAuthAttempts = () => {
   const { token } = useAuth();
+  const queryClient = useQueryClient();
 
-  return useQuery({
-    queryKey: ["push-auth-attempts"],
+  const query = useQuery({
+    queryKey: ATTEMPTS_KEY,
     queryFn: async () => {
       const response = await fetch("http://localhost:8001/push/get", {
         headers: {
@@ -26,12 +35,47 @@ export const usePushAuthAttempts = () => {
         throw new Error("Failed to fetch push auth attempts");
       }
 
+      // first page only; anything past it arrives over the stream as attempts come and go
       const data = await response.json();
-      return data.data as PushAuthAttempt[];
+      return data.data.data as PushAuthAttempt[];
     },
     enabled: !!token,
-    refetchInterval: 10000, 
+    // kept current by the stream below rather than by polling
+    staleTime: Infinity,
   });
+
+  useEffect(() => {
+    if (!token) {
+      return;
+    }
+
+    const controller = new AbortController();
+
+    streamEvents("http://localhost:8001/push/attempts/stream", {
+      headers: { Authorization: `Bearer ${token}` },
+      signal: controller.signal,
+      onEvent: ({ event, data }) => {
+        if (event === "attempts") {
+          queryClient.setQueryData(ATTEMPTS_KEY, JSON.parse(data));
+        } else if (event === "attempt-created") {
+          const attempt = JSON.parse(data) as PushAuthAttempt;
+          queryClient.setQueryData<PushAuthAttempt[]>(ATTEMPTS_KEY, (current = []) => [
+            ...current.filter((a) => a.requestId !== attempt.requestId),
+            attempt,
+          ]);
+        } else if (event === "attempt-removed") {
+          const { requestId } = JSON.parse(data) as { requestId: string };
+          queryClient.setQueryData<PushAuthAttempt[]>(ATTEMPTS_KEY, (current = []) =>
+            current.filter((a) => a.requestId !== requestId)
+          );
+        }
+      },
+    });
+
+    return () => controller.abort();
+  }, [token, queryClient]);
+
+  return query;
 };
 
 export const useVerifyPushAuth = () => {
@@ -64,10 +108,12 @@ export const useVerifyPushAuth = () => {
 
       return response.json();
     },
-    onSuccess: () => {
+    onSuccess: (_, { requestId }) => {
       toast.success("Login attempt approved successfully!");
-      // Refresh the attempts list
-      queryClient.invalidateQueries({ queryKey: ["push-auth-attempts"] });
+      // the stream reports the removal too; this just doesn't wait for it
+      queryClient.setQueryData<PushAuthAttempt[]>(ATTEMPTS_KEY, (current = []) =>
+        current.filter((a) => a.requestId !== requestId)
+      );
     },
     onError: (error: Error) => {
       toast.error(`Failed to approve login: ${error.message}`);
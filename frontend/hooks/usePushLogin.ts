@@ -1,10 +1,11 @@
 import { useMutation } from "@tanstack/react-query";
 import { useRouter } from "next/navigation";
 import { User } from "./useAuth";
-import { encodeClientId } from "@/utils/pushAuth";
+import { encodeClientId, storeExchangeKey } from "@/utils/pushAuth";
 
 interface PushLoginResponse {
     requestId: string;
+    exchangeKey: string;
     email: string;
     otp: string;
     user: User;
@@ -25,7 +26,8 @@ export const usePushLogin = () => {
       return data.data as PushLoginResponse;
     },
     onSuccess: (data) => {
-        const { requestId, user, otp } = data;
+        const { requestId, user, otp, exchangeKey } = data;
+        storeExchangeKey(requestId, exchangeKey);
         const clientData = { requestId, email: user.email };
         const clientId = encodeClientId(clientData);
         router.push(`/push-auth?clientId=${clientId}&otp=${otp}`);
@@ -25,7 +25,7 @@ export const useVerifyTotp = () => {
     },
     onSuccess: (data) => {
       toast.success("TOTP verified");
-      login(data.data.token);
+      login(data.data.token, data.data.refreshToken);
       router.push("/");
     },
     onError: (error) => {
@@ -74,7 +74,7 @@ export const useWebAuthnLogin = () => {
     },
     onSuccess: (data) => {
       toast.success("Logged in with passkey!");
-      login(data.data.token);
+      login(data.data.token, data.data.refreshToken);
       router.push("/");
     },
     onError: (error: Error) => {
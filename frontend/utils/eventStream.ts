@@ -0,0 +1,107 @@
+/**
+ * Server-sent events over fetch, for streams that need an Authorization header (EventSource cannot
+ * send one)
+ */
+
+export interface StreamEvent {
+  id?: string;
+  event: string;
+  data: string;
+}
+
+interface StreamOptions {
+  headers?: Record<string, string>;
+  signal: AbortSignal;
+  onEvent: (event: StreamEvent) => void;
+  retryMs?: number;
+}
+
+/**
+ * Reads the stream at url until signal aborts, reconnecting after retryMs whenever it ends.
+ * Gives up on 401 or 403, since retrying with the same token cannot succeed.
+ */
+export async function streamEvents(url: string, options: StreamOptions) {
+  const { headers, signal, onEvent, retryMs = 3000 } = options;
+
+  while (!signal.aborted) {
+    try {
+      const response = await fetch(url, {
+        headers: { ...headers, Accept: "text/event-stream" },
+        signal,
+      });
+
+      if (response.status === 401 || response.status === 403) {
+        return;
+      }
+
+      if (response.ok && response.body) {
+        await readEvents(response.body, onEvent);
+      }
+    } catch (error) {
+      if (signal.aborted) {
+        return;
+      }
+    }
+
+    await new Promise((resolve) => setTimeout(resolve, retryMs));
+  }
+}
+
+async function readEvents(
+  body: ReadableStream<Uint8Array>,
+  onEvent: (event: StreamEvent) => void
+) {
+  const reader = body.pipeThrough(new TextDecoderStream()).getReader();
+
+  let buffer = "";
+  let id: string | undefined;
+  let event = "message";
+  let data: string[] = [];
+
+  while (true) {
+    const { value, done } = await reader.read();
+    if (done) {
+      return;
+    }
+
+    buffer += value;
+
+    let newline;
+    while ((newline = buffer.indexOf("\n")) >= 0) {
+      let line = buffer.slice(0, newline);
+      buffer = buffer.slice(newline + 1);
+      if (line.endsWith("\r")) {
+        line = line.slice(0, -1);
+      }
+
+      // a blank line ends the event; comments (keep-alives) start with ':'
+      if (line === "") {
+        if (data.length > 0) {
+          onEvent({ id, event, data: data.join("\n") });
+        }
+        id = undefined;
+        event = "message";
+        data = [];
+        continue;
+      }
+      if (line.startsWith(":")) {
+        continue;
+      }
+
+      const colon = line.indexOf(":");
+      const field = colon < 0 ? line : line.slice(0, colon);
+      let fieldValue = colon < 0 ? "" : line.slice(colon + 1);
+      if (fieldValue.startsWith(" ")) {
+        fieldValue = fieldValue.slice(1);
+      }
+
+      if (field === "event") {
+        event = fieldValue;
+      } else if (field === "data") {
+        data.push(fieldValue);
+      } else if (field === "id") {
+        id = fieldValue;
+      }
+    }
+  }
+}
@@ -9,7 +9,7 @@ export interface ClientIdData {
 
 /**
  * Encodes client data into a base64 clientId for push authentication
- * Format: auth_login_<sessionID>_<email>
+ * Format: auth_login_<requestId>_<email>
  */
 export function encodeClientId(data: ClientIdData): string {
   const formatted = `auth_login_${data.requestId}_${data.email}`;
@@ -22,21 +22,36 @@ export function encodeClientId(data: ClientIdData): string {
 export function decodeClientId(clientId: string): ClientIdData {
   try {
     const decoded = atob(clientId);
+    // the request id is hex, so only the email may contain further underscores
     const parts = decoded.split("_");
 
-    if (parts.length !== 4 || parts[0] !== "auth" || parts[1] !== "login") {
+    if (parts.length < 4 || parts[0] !== "auth" || parts[1] !== "login") {
       throw new Error("Invalid client ID format");
     }
 
     return {
       requestId: parts[2],
-      email: parts[3],
+      email: parts.slice(3).join("_"),
     };
   } catch (error) {
     throw new Error("Failed to decode client ID");
   }
 }
 
+/**
+ * The key from /push/generate stays in this tab only: it is what lets the
+ * login-success grant be redeemed, so it must never travel in a URL.
+ */
+export function storeExchangeKey(requestId: string, exchangeKey: string): void {
+  sessionStorage.setItem(`push-exchange-key:${requestId}`, exchangeKey);
+}
+
+export function takeExchangeKey(requestId: string): string | null {
+  const key = `push-exchange-key:${requestId}`;
+  const exchangeKey = sessionStorage.getItem(key);
+  sessionStorage.removeItem(key);
+  return exchangeKey;
+}
 
 export function generateSessionId(): string {
   return (